@@ -0,0 +1,17 @@
+package com.example.modulea;
+
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+
+public class ModuleAActivator implements BundleActivator {
+
+    @Override
+    public void start(BundleContext context) {
+        System.out.println("Starting module A");
+    }
+
+    @Override
+    public void stop(BundleContext context) {
+        System.out.println("Stopping module A");
+    }
+}
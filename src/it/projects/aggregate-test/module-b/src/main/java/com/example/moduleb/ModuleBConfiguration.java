@@ -0,0 +1,13 @@
+package com.example.moduleb;
+
+import org.osgi.service.cm.ManagedService;
+
+import java.util.Dictionary;
+
+public class ModuleBConfiguration implements ManagedService {
+
+    @Override
+    public void updated(Dictionary<String, ?> properties) {
+        System.out.println("Module B configuration updated: " + properties);
+    }
+}
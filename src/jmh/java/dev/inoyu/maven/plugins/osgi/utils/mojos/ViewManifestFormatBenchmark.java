@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.mojos;
+
+import org.apache.felix.utils.manifest.Attribute;
+import org.apache.felix.utils.manifest.Clause;
+import org.apache.felix.utils.manifest.Directive;
+import org.apache.felix.utils.manifest.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.Role.*;
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.builder;
+
+/**
+ * Measures the formatting of a large Import-Package header by view-manifest against the previous implementation,
+ * which built a colored fragment per clause, directive and attribute and compiled a regex per quoted value.
+ * Run with: mvn -Pjmh test-compile exec:exec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ViewManifestFormatBenchmark {
+
+    @Param({"50", "2000"})
+    private int clauseCount;
+
+    private String header;
+    private ViewManifestMojo mojo;
+
+    @Setup
+    public void setUp() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < clauseCount; i++) {
+            if (i > 0) {
+                value.append(',');
+            }
+            value.append("org.example.package").append(i).append(";version=\"[1.").append(i % 10).append(",2)\"");
+            if (i % 3 == 0) {
+                value.append(";resolution:=optional");
+            }
+            if (i % 5 == 0) {
+                value.append(";uses:=\"org.example.api,org.example.spi\"");
+            }
+        }
+        header = value.toString();
+        mojo = new ViewManifestMojo();
+        mojo.initFormatting();
+        if (!mojo.formatHeader("Import-Package", header).equals(formatHeaderWithFragments("Import-Package", header))) {
+            throw new IllegalStateException("Both implementations should format the header identically");
+        }
+    }
+
+    @Benchmark
+    public String formatHeader() {
+        return mojo.formatHeader("Import-Package", header);
+    }
+
+    @Benchmark
+    public String formatHeaderWithFragments() {
+        return formatHeaderWithFragments("Import-Package", header);
+    }
+
+    /**
+     * The implementation replaced by {@link ViewManifestMojo#formatHeader(String, String)}.
+     */
+    private static String formatHeaderWithFragments(String key, String value) {
+        StringBuilder formatted = new StringBuilder(builder().add(DEPENDENCY, key + ":").build() + "\n");
+        Clause[] clauses = Parser.parseHeader(value);
+        for (int i = 0; i < clauses.length; i++) {
+            Clause clause = clauses[i];
+            formatted.append(builder().add(CLAUSE, "  " + clause.getName()).build());
+            for (Directive directive : clause.getDirectives()) {
+                String quotedValue = applyQuotingIfNeeded(directive.getValue());
+                formatted.append(builder().add(DIRECTIVE, ";" + directive.getName() + ":=" + quotedValue).build());
+            }
+            for (Attribute attribute : clause.getAttributes()) {
+                String quotedValue = applyQuotingIfNeeded(attribute.getValue());
+                formatted.append(builder().add(ATTRIBUTE, ";" + attribute.getName() + "=" + quotedValue).build());
+            }
+            if (i < clauses.length - 1) {
+                formatted.append(",\n");
+            }
+        }
+        return formatted.toString();
+    }
+
+    private static String applyQuotingIfNeeded(String value) {
+        Pattern specialCharacters = Pattern.compile("[,;=]|\\s");
+        if (value.isEmpty() || specialCharacters.matcher(value).find()) {
+            return "\"" + value.replace("\"", "\\\"") + "\"";
+        }
+        return value;
+    }
+}
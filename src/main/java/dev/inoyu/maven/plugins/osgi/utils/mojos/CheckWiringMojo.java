@@ -0,0 +1,328 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.mojos;
+
+import dev.inoyu.maven.plugins.osgi.utils.reports.ReportWriter;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.WiringResolver;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.WiringResolver.Bundle;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.WiringResolver.Export;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.WiringResolver.Import;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.JarCollector;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ManifestReader;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.PackageMatcher;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ParallelScanner;
+import org.apache.felix.utils.manifest.Clause;
+import org.apache.felix.utils.manifest.Parser;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import org.fusesource.jansi.AnsiConsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.Role.*;
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.builder;
+
+/**
+ * A Maven goal to check that a set of bundles can be wired together, without starting an OSGi framework.
+ * The manifests of the bundles are read, every Import-Package clause is matched against the Export-Package
+ * clauses of all the bundles, and the bundles that would fail to resolve are reported with their missing
+ * packages, so that deployment errors such as "missing requirement osgi.wiring.package" are caught at build time.
+ *
+ * When used within a project, it checks the project's bundle with its runtime dependencies. When used
+ * independently, it checks the given JAR files, directories or glob patterns, such as a whole Karaf
+ * system directory.
+ */
+@Mojo(name = "check-wiring", requiresProject = false, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
+public class CheckWiringMojo extends AbstractMojo {
+
+    private static final String[] REPORT_COLUMNS = {"bundle", "location", "package", "range", "reason", "exporters"};
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    /**
+     * The bundles to check: JAR files, directories searched recursively for JARs, or glob patterns. Defaults to
+     * the project's bundle and its runtime dependencies.
+     */
+    @Parameter(property = "jars")
+    private List<String> jars;
+
+    /**
+     * The packages exported by the framework, with the syntax of an Export-Package header, such as
+     * "org.osgi.framework;version=1.10,javax.annotation;version=1.3". The java.* packages are always available.
+     */
+    @Parameter(property = "systemPackages")
+    private String systemPackages;
+
+    /**
+     * Imported packages considered available, such as the packages of the boot delegation, following the BND
+     * conventions of find-package-usages: "android.*" matches android and all its subpackages.
+     */
+    @Parameter(property = "ignoredPackages")
+    private List<String> ignoredPackages;
+
+    /**
+     * Whether the build fails when a bundle does not resolve.
+     */
+    @Parameter(property = "failOnUnresolved", defaultValue = "false")
+    private boolean failOnUnresolved;
+
+    /**
+     * The number of threads used to read the manifests. Defaults to the number of available processors.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * An optional file to which the missing packages are also written, one record per unsatisfied import.
+     */
+    @Parameter(property = "reportFile")
+    private File reportFile;
+
+    /**
+     * The format of the report file: "jsonl" or "csv". Defaults to the extension of the report file, JSON Lines
+     * being used for any extension other than ".csv".
+     */
+    @Parameter(property = "reportFormat")
+    private String reportFormat;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        printCoolHeader();
+
+        List<File> files = collectFiles();
+        if (files.isEmpty()) {
+            throw new MojoExecutionException("No bundles specified and not running in a project context.");
+        }
+
+        WiringResolver resolver;
+        try {
+            resolver = new WiringResolver(ignoredPackages != null && !ignoredPackages.isEmpty()
+                    ? PackageMatcher.compile(ignoredPackages) : null);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+
+        List<Bundle> unresolvedBundles;
+        ReportWriter reportWriter = null;
+        try {
+            long start = System.currentTimeMillis();
+            List<File> skippedFiles = new ArrayList<>();
+            ParallelScanner scanner = new ParallelScanner(threads);
+            getLog().debug("Reading " + files.size() + " manifests using " + scanner.getThreads() + " threads");
+            // The manifests are read in parallel, the resolver being filled in the order of the files
+            scanner.scanInOrder(files, ManifestReader::read, (file, manifest) -> {
+                if (!addBundle(resolver, file, manifest)) {
+                    skippedFiles.add(file);
+                }
+            });
+            if (systemPackages != null && !systemPackages.trim().isEmpty()) {
+                resolver.addSystemPackages(systemPackages);
+            }
+            for (File skippedFile : skippedFiles) {
+                getLog().debug("Not a bundle, skipped: " + skippedFile);
+            }
+            for (String warning : resolver.getWarnings()) {
+                getLog().warn(warning);
+            }
+
+            unresolvedBundles = resolver.resolve();
+            getLog().debug("Resolved in " + (System.currentTimeMillis() - start) + " ms");
+
+            if (reportFile != null) {
+                reportWriter = ReportWriter.open(reportFile, reportFormat, REPORT_COLUMNS);
+            }
+            for (Bundle bundle : unresolvedBundles) {
+                printUnresolvedBundle(resolver, bundle, reportWriter);
+            }
+
+            int bundleCount = files.size() - skippedFiles.size();
+            getLog().info(builder()
+                    .add(CONTEXT, "Resolved ")
+                    .add(DETAIL, String.valueOf(bundleCount - unresolvedBundles.size()))
+                    .add(CONTEXT, " of ")
+                    .add(DETAIL, String.valueOf(bundleCount))
+                    .add(CONTEXT, " bundles, ")
+                    .add(DETAIL, String.valueOf(resolver.getImportCount()))
+                    .add(CONTEXT, " imports matched against ")
+                    .add(DETAIL, String.valueOf(resolver.getExportedPackageCount()))
+                    .add(CONTEXT, " exported packages")
+                    .build());
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoExecutionException("Error while checking the wiring of the bundles", e);
+        } finally {
+            closeReport(reportWriter);
+            AnsiConsole.systemUninstall();
+        }
+
+        if (failOnUnresolved && !unresolvedBundles.isEmpty()) {
+            throw new MojoFailureException(unresolvedBundles.size() + " bundles cannot be resolved");
+        }
+    }
+
+    private List<File> collectFiles() throws MojoExecutionException {
+        List<File> files = new ArrayList<>();
+        if (jars != null && !jars.isEmpty()) {
+            JarCollector collector = new JarCollector();
+            for (String location : jars) {
+                try {
+                    collector.add(location.trim());
+                } catch (NoSuchFileException e) {
+                    throw new MojoExecutionException("No JAR file, directory or pattern matches " + location);
+                } catch (IOException e) {
+                    throw new MojoExecutionException("Error collecting the JAR files of " + location, e);
+                }
+            }
+            for (String error : collector.getErrors()) {
+                getLog().warn("Unable to read " + error);
+            }
+            for (Path jar : collector.getJars()) {
+                files.add(jar.toFile());
+            }
+        } else if (project != null && project.getFile() != null) {
+            File bundleFile = new File(project.getBuild().getDirectory(), project.getBuild().getFinalName() + ".jar");
+            if (bundleFile.isFile()) {
+                files.add(bundleFile);
+            }
+            for (Artifact artifact : project.getArtifacts()) {
+                File file = artifact.getFile();
+                if (file != null && file.isFile() && file.getName().endsWith(".jar")
+                        && !Artifact.SCOPE_TEST.equals(artifact.getScope())) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Adds the bundle of a manifest to the resolver, or returns false if the JAR is not a bundle.
+     */
+    private static boolean addBundle(WiringResolver resolver, File file, Manifest manifest) {
+        if (manifest == null) {
+            return false;
+        }
+        Attributes mainAttributes = manifest.getMainAttributes();
+        String symbolicName = mainAttributes.getValue("Bundle-SymbolicName");
+        if (symbolicName == null) {
+            return false;
+        }
+        Clause[] symbolicNameClauses = Parser.parseHeader(symbolicName);
+        resolver.addBundle(symbolicNameClauses.length > 0 ? symbolicNameClauses[0].getName() : symbolicName.trim(),
+                mainAttributes.getValue("Bundle-Version"), file.getPath(),
+                mainAttributes.getValue("Export-Package"), mainAttributes.getValue("Import-Package"));
+        return true;
+    }
+
+    private void printUnresolvedBundle(WiringResolver resolver, Bundle bundle, ReportWriter reportWriter) throws IOException {
+        getLog().info(builder()
+                .add(ERROR, "❌ Unresolved bundle: ")
+                .add(DETAIL, bundle.toString())
+                .add(CONTEXT, " (" + bundle.getLocation() + ")")
+                .build());
+        for (Import anImport : bundle.getImports()) {
+            if (anImport.getReason() == null) {
+                continue;
+            }
+            String exporters;
+            String explanation;
+            switch (anImport.getReason()) {
+                case VERSION_MISMATCH:
+                    exporters = formatExporters(resolver.getExports(anImport.getPackageName()), true);
+                    explanation = "no exporter in range, exported as " + exporters;
+                    break;
+                case EXPORTERS_UNRESOLVED:
+                    exporters = formatExporters(anImport.getCandidates(), false);
+                    explanation = "only exported by unresolved bundles " + exporters;
+                    break;
+                default:
+                    exporters = "";
+                    explanation = "not exported by any bundle";
+            }
+            getLog().info(builder()
+                    .add(CONTEXT, "  Missing package: ")
+                    .add(CLAUSE, anImport.getPackageName())
+                    .add(ATTRIBUTE, " " + anImport.getRange())
+                    .add(CONTEXT, ": ")
+                    .add(anImport.getReason() == WiringResolver.Reason.EXPORTERS_UNRESOLVED ? DEPENDENCY : ERROR, explanation)
+                    .build());
+            if (reportWriter != null) {
+                reportWriter.write(bundle.toString(), bundle.getLocation(), anImport.getPackageName(),
+                        anImport.getRange(), anImport.getReason().name(), exporters);
+            }
+        }
+        if (reportWriter != null) {
+            reportWriter.flush();
+        }
+    }
+
+    private static String formatExporters(List<Export> exports, boolean withVersions) {
+        StringBuilder formatted = new StringBuilder();
+        for (Export export : exports) {
+            if (formatted.length() > 0) {
+                formatted.append(", ");
+            }
+            if (withVersions) {
+                formatted.append(export.getVersion()).append(" by ");
+            }
+            formatted.append(export.getBundle());
+        }
+        return formatted.toString();
+    }
+
+    private void closeReport(ReportWriter reportWriter) {
+        if (reportWriter != null) {
+            try {
+                reportWriter.close();
+            } catch (IOException e) {
+                getLog().warn("Unable to write report file " + reportFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void printCoolHeader() {
+        String[] header = {
+                "  _____                          __          __ _        _               ",
+                " |_   _|                         \\ \\        / /(_)      (_)              ",
+                "   | |  _ __   ___  _   _ _   _   \\ \\  /\\  / /  _  _ __  _  _ __    __ _ ",
+                "   | | | '_ \\ / _ \\| | | | | | |   \\ \\/  \\/ /  | || '__|| || '_ \\  / _` |",
+                "  _| |_| | | | (_) | |_| | |_| |    \\  /\\  /   | || |   | || | | || (_| |",
+                " |_____|_| |_|\\___/ \\__, |\\__,_|     \\/  \\/    |_||_|   |_||_| |_| \\__, |",
+                "                     __/ |                                          __/ |",
+                "                    |___/                                          |___/ "
+        };
+
+        for (String line : header) {
+            getLog().info(builder().add(HEADER, line).build());
+        }
+        getLog().info("");
+    }
+}
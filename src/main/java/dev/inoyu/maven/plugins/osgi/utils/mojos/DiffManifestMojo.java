@@ -0,0 +1,531 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.mojos;
+
+import dev.inoyu.maven.plugins.osgi.utils.reports.ReportWriter;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.JarCollector;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ManifestReader;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ParallelScanner;
+import dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.Role;
+import org.apache.felix.utils.manifest.Attribute;
+import org.apache.felix.utils.manifest.Clause;
+import org.apache.felix.utils.manifest.Directive;
+import org.apache.felix.utils.manifest.Parser;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import org.fusesource.jansi.AnsiConsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.Role.*;
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.builder;
+
+/**
+ * A Maven goal to compare the manifests of two bundles, or of two sets of bundles such as two builds of a
+ * distribution, matched by Bundle-SymbolicName. When several versions of a bundle are found on either side, they are
+ * matched by major version, so that each version is compared with its counterpart instead of being dropped.
+ * The compared headers are parsed into clauses, sorted by name on both sides and merged in a single pass, so that
+ * each header is compared in linear time after sorting, and the added, removed and changed clauses are reported.
+ * Only the compared headers of each bundle are kept in memory, and the bundles are compared in parallel while the
+ * differences are displayed in the order of their symbolic names.
+ */
+@Mojo(name = "diff-manifest", requiresProject = false)
+public class DiffManifestMojo extends AbstractMojo {
+
+    private static final String[] REPORT_COLUMNS = {"bundle", "header", "clause", "change", "baseline", "current"};
+
+    private static final String VERSION_ATTRIBUTE = "version";
+
+    /**
+     * The kinds of differences, with the role used to display them.
+     */
+    private enum Change {
+        ADDED("+ ", CLAUSE),
+        REMOVED("- ", ERROR),
+        VERSION_CHANGED("~ ", DIRECTIVE),
+        CHANGED("~ ", ATTRIBUTE);
+
+        private final String prefix;
+        private final Role role;
+
+        Change(String prefix, Role role) {
+            this.prefix = prefix;
+            this.role = role;
+        }
+    }
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    /**
+     * The baseline bundles: a JAR file, a directory searched recursively for JARs, or a glob pattern.
+     */
+    @Parameter(property = "baseline", required = true)
+    private String baseline;
+
+    /**
+     * The bundles compared with the baseline: a JAR file, a directory or a glob pattern. Defaults to the
+     * project's bundle.
+     */
+    @Parameter(property = "current")
+    private String current;
+
+    /**
+     * The headers compared clause by clause.
+     */
+    @Parameter(property = "headers", defaultValue = "Import-Package,Export-Package")
+    private List<String> headers;
+
+    /**
+     * The number of threads used to read the manifests and compare the bundles. Defaults to the number of
+     * available processors.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * An optional file to which the differences are also written, one record per changed clause.
+     */
+    @Parameter(property = "reportFile")
+    private File reportFile;
+
+    /**
+     * The format of the report file: "jsonl" or "csv". Defaults to the extension of the report file, JSON Lines
+     * being used for any extension other than ".csv".
+     */
+    @Parameter(property = "reportFormat")
+    private String reportFormat;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        printCoolHeader();
+
+        String currentLocation = current;
+        if (currentLocation == null && project != null && project.getFile() != null) {
+            currentLocation = new File(project.getBuild().getDirectory(), project.getBuild().getFinalName() + ".jar").getPath();
+        }
+        if (currentLocation == null) {
+            throw new MojoExecutionException("No current bundles specified and not running in a project context.");
+        }
+
+        ReportWriter reportWriter = null;
+        try {
+            ParallelScanner scanner = new ParallelScanner(threads);
+            List<Path> baselineJars = collectJars(baseline);
+            List<Path> currentJars = collectJars(currentLocation);
+            getLog().info(builder()
+                    .add(CONTEXT, "Comparing ")
+                    .add(DETAIL, String.valueOf(currentJars.size()))
+                    .add(CONTEXT, " JARs of ")
+                    .add(DETAIL, currentLocation)
+                    .add(CONTEXT, " with ")
+                    .add(DETAIL, String.valueOf(baselineJars.size()))
+                    .add(CONTEXT, " JARs of ")
+                    .add(DETAIL, baseline)
+                    .build());
+
+            List<BundlePair> pairs;
+            if (new File(baseline).isFile() && new File(currentLocation).isFile()) {
+                // Two JAR files are compared whatever their symbolic names
+                pairs = Collections.singletonList(new BundlePair(readHeaders(baselineJars.get(0)), readHeaders(currentJars.get(0))));
+            } else {
+                pairs = matchBundles(readAllHeaders(scanner, baselineJars), readAllHeaders(scanner, currentJars));
+            }
+
+            if (reportFile != null) {
+                reportWriter = ReportWriter.open(reportFile, reportFormat, REPORT_COLUMNS);
+            }
+            ReportWriter writer = reportWriter;
+            int[] counts = new int[4];
+            scanner.scanInOrder(pairs, this::diffBundles, (pair, differences) -> {
+                if (pair.baseline == null) {
+                    counts[0]++;
+                } else if (pair.current == null) {
+                    counts[1]++;
+                } else if (!differences.isEmpty()) {
+                    counts[2]++;
+                } else {
+                    counts[3]++;
+                    return;
+                }
+                printDifferences(pair, differences, writer);
+            });
+
+            getLog().info(builder()
+                    .add(CONTEXT, "Bundles changed: ").add(DETAIL, String.valueOf(counts[2]))
+                    .add(CONTEXT, ", added: ").add(DETAIL, String.valueOf(counts[0]))
+                    .add(CONTEXT, ", removed: ").add(DETAIL, String.valueOf(counts[1]))
+                    .add(CONTEXT, ", unchanged: ").add(DETAIL, String.valueOf(counts[3]))
+                    .build());
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoExecutionException("Error while comparing the manifests of " + baseline + " and " + currentLocation, e);
+        } finally {
+            closeReport(reportWriter);
+            AnsiConsole.systemUninstall();
+        }
+    }
+
+    private static List<Path> collectJars(String location) throws MojoExecutionException {
+        JarCollector collector = new JarCollector();
+        try {
+            collector.add(location.trim());
+        } catch (NoSuchFileException e) {
+            throw new MojoExecutionException("No JAR file, directory or pattern matches " + location);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error collecting the JAR files of " + location, e);
+        }
+        return collector.getJars();
+    }
+
+    /**
+     * Reads the compared headers of the bundles, sorted by symbolic name, then by major version. The JARs that are
+     * not bundles are skipped.
+     */
+    private SortedMap<String, SortedMap<Integer, BundleHeaders>> readAllHeaders(ParallelScanner scanner, List<Path> jars) throws Exception {
+        SortedMap<String, SortedMap<Integer, BundleHeaders>> bundles = new TreeMap<>();
+        scanner.scanInOrder(jars, this::readHeaders, (jar, bundle) -> {
+            if (bundle.symbolicName == null) {
+                getLog().debug("Not a bundle, skipped: " + jar);
+            } else {
+                BundleHeaders duplicate = bundles.computeIfAbsent(bundle.symbolicName, k -> new TreeMap<>())
+                        .putIfAbsent(bundle.majorVersion, bundle);
+                if (duplicate != null) {
+                    getLog().warn("Bundle " + bundle.symbolicName + " found twice in major version "
+                            + bundle.majorVersion + ", comparing " + duplicate.file + " and ignoring " + bundle.file);
+                }
+            }
+        });
+        return bundles;
+    }
+
+    private BundleHeaders readHeaders(Path jar) throws IOException {
+        Manifest manifest = ManifestReader.read(jar.toFile());
+        Attributes mainAttributes = manifest != null ? manifest.getMainAttributes() : new Attributes();
+        String symbolicName = mainAttributes.getValue("Bundle-SymbolicName");
+        if (symbolicName != null) {
+            Clause[] clauses = Parser.parseHeader(symbolicName);
+            symbolicName = clauses.length > 0 ? clauses[0].getName() : symbolicName.trim();
+        }
+        Map<String, String> headerValues = new HashMap<>();
+        for (String header : headers) {
+            String value = mainAttributes.getValue(header.trim());
+            if (value != null) {
+                headerValues.put(header.trim(), value);
+            }
+        }
+        return new BundleHeaders(jar.toString(), symbolicName, mainAttributes.getValue("Bundle-Version"), headerValues);
+    }
+
+    /**
+     * Matches the bundles of both sides by symbolic name, merging the two sorted maps in a single pass. A bundle
+     * found in a single version on each side is compared whatever its versions, so that a major upgrade is still
+     * reported as changes; otherwise its versions are matched by major version, the same way.
+     */
+    private static List<BundlePair> matchBundles(SortedMap<String, SortedMap<Integer, BundleHeaders>> baselineBundles,
+                                                 SortedMap<String, SortedMap<Integer, BundleHeaders>> currentBundles) {
+        List<BundlePair> pairs = new ArrayList<>();
+        merge(baselineBundles, currentBundles, (baselineVersions, currentVersions) -> {
+            if (baselineVersions == null || currentVersions == null) {
+                for (BundleHeaders bundle : (baselineVersions != null ? baselineVersions : currentVersions).values()) {
+                    pairs.add(baselineVersions != null ? new BundlePair(bundle, null) : new BundlePair(null, bundle));
+                }
+            } else if (baselineVersions.size() == 1 && currentVersions.size() == 1) {
+                pairs.add(new BundlePair(baselineVersions.get(baselineVersions.firstKey()),
+                        currentVersions.get(currentVersions.firstKey())));
+            } else {
+                merge(baselineVersions, currentVersions, (baselineBundle, currentBundle) ->
+                        pairs.add(new BundlePair(baselineBundle, currentBundle)));
+            }
+        });
+        return pairs;
+    }
+
+    /**
+     * Merges two sorted maps in a single pass, passing the values of each key to the consumer, null for the side
+     * missing the key.
+     */
+    private static <K extends Comparable<K>, V> void merge(SortedMap<K, V> baseline, SortedMap<K, V> current,
+                                                           BiConsumer<V, V> consumer) {
+        Iterator<Map.Entry<K, V>> baselineIterator = baseline.entrySet().iterator();
+        Iterator<Map.Entry<K, V>> currentIterator = current.entrySet().iterator();
+        Map.Entry<K, V> baselineEntry = baselineIterator.hasNext() ? baselineIterator.next() : null;
+        Map.Entry<K, V> currentEntry = currentIterator.hasNext() ? currentIterator.next() : null;
+        while (baselineEntry != null || currentEntry != null) {
+            int comparison = baselineEntry == null ? 1 : currentEntry == null ? -1
+                    : baselineEntry.getKey().compareTo(currentEntry.getKey());
+            consumer.accept(comparison <= 0 ? baselineEntry.getValue() : null,
+                    comparison >= 0 ? currentEntry.getValue() : null);
+            if (comparison <= 0) {
+                baselineEntry = baselineIterator.hasNext() ? baselineIterator.next() : null;
+            }
+            if (comparison >= 0) {
+                currentEntry = currentIterator.hasNext() ? currentIterator.next() : null;
+            }
+        }
+    }
+
+    private List<Difference> diffBundles(BundlePair pair) {
+        if (pair.baseline == null || pair.current == null) {
+            return Collections.emptyList();
+        }
+        List<Difference> differences = new ArrayList<>();
+        for (String header : headers) {
+            header = header.trim();
+            diffHeader(header, pair.baseline.headers.get(header), pair.current.headers.get(header), differences);
+        }
+        return differences;
+    }
+
+    /**
+     * Compares the clauses of a header, both sides being sorted by name, then merged in a single pass.
+     */
+    private static void diffHeader(String header, String baselineValue, String currentValue, List<Difference> differences) {
+        Clause[] baselineClauses = sortClauses(baselineValue);
+        Clause[] currentClauses = sortClauses(currentValue);
+        int i = 0;
+        int j = 0;
+        while (i < baselineClauses.length || j < currentClauses.length) {
+            int comparison = i == baselineClauses.length ? 1 : j == currentClauses.length ? -1
+                    : baselineClauses[i].getName().compareTo(currentClauses[j].getName());
+            if (comparison < 0) {
+                Clause removed = baselineClauses[i++];
+                differences.add(new Difference(header, removed.getName(), Change.REMOVED, formatParameters(removed, true), null));
+            } else if (comparison > 0) {
+                Clause added = currentClauses[j++];
+                differences.add(new Difference(header, added.getName(), Change.ADDED, null, formatParameters(added, true)));
+            } else {
+                Clause baselineClause = baselineClauses[i++];
+                Clause currentClause = currentClauses[j++];
+                String baselineVersion = baselineClause.getAttribute(VERSION_ATTRIBUTE);
+                String currentVersion = currentClause.getAttribute(VERSION_ATTRIBUTE);
+                if (!Objects.equals(baselineVersion, currentVersion)) {
+                    differences.add(new Difference(header, baselineClause.getName(), Change.VERSION_CHANGED,
+                            baselineVersion, currentVersion));
+                }
+                String baselineParameters = formatParameters(baselineClause, false);
+                String currentParameters = formatParameters(currentClause, false);
+                if (!baselineParameters.equals(currentParameters)) {
+                    differences.add(new Difference(header, baselineClause.getName(), Change.CHANGED,
+                            baselineParameters, currentParameters));
+                }
+            }
+        }
+    }
+
+    private static Clause[] sortClauses(String value) {
+        if (value == null) {
+            return new Clause[0];
+        }
+        Clause[] clauses = Parser.parseHeader(value);
+        // Clauses of the same name, such as a package exported in two versions, are ordered by version
+        Arrays.sort(clauses, Comparator.comparing(Clause::getName)
+                .thenComparing(clause -> String.valueOf(clause.getAttribute(VERSION_ATTRIBUTE))));
+        return clauses;
+    }
+
+    /**
+     * Formats the directives and attributes of a clause, sorted by name so that their order does not matter.
+     */
+    private static String formatParameters(Clause clause, boolean withVersion) {
+        List<String> parameters = new ArrayList<>();
+        for (Directive directive : clause.getDirectives()) {
+            parameters.add(directive.getName() + ":=" + directive.getValue());
+        }
+        for (Attribute attribute : clause.getAttributes()) {
+            if (withVersion || !VERSION_ATTRIBUTE.equals(attribute.getName())) {
+                parameters.add(attribute.getName() + "=" + attribute.getValue());
+            }
+        }
+        Collections.sort(parameters);
+        return String.join(";", parameters);
+    }
+
+    private void printDifferences(BundlePair pair, List<Difference> differences, ReportWriter reportWriter) throws IOException {
+        if (pair.baseline == null) {
+            getLog().info(builder().add(CLAUSE, "+ Added bundle: ").add(DEPENDENCY, pair.current.toString())
+                    .add(CONTEXT, " (" + pair.current.file + ")").build());
+            if (reportWriter != null) {
+                reportWriter.write(pair.current.toString(), null, null, Change.ADDED.name(), null, pair.current.file);
+            }
+        } else if (pair.current == null) {
+            getLog().info(builder().add(ERROR, "- Removed bundle: ").add(DEPENDENCY, pair.baseline.toString())
+                    .add(CONTEXT, " (" + pair.baseline.file + ")").build());
+            if (reportWriter != null) {
+                reportWriter.write(pair.baseline.toString(), null, null, Change.REMOVED.name(), pair.baseline.file, null);
+            }
+        } else {
+            String bundleName = pair.current.symbolicName != null ? pair.current.symbolicName : pair.current.file;
+            getLog().info(builder()
+                    .add(CONTEXT, "📦 ")
+                    .add(DEPENDENCY, bundleName)
+                    .add(CONTEXT, " " + orNone(pair.baseline.version) + " → " + orNone(pair.current.version))
+                    .build());
+            String header = null;
+            for (Difference difference : differences) {
+                if (!difference.header.equals(header)) {
+                    header = difference.header;
+                    getLog().info(builder().add(CONTEXT, "  " + header + ":").build());
+                }
+                getLog().info(formatDifference(difference));
+                if (reportWriter != null) {
+                    reportWriter.write(bundleName, difference.header, difference.clause, difference.change.name(),
+                            difference.baseline, difference.current);
+                }
+            }
+        }
+        if (reportWriter != null) {
+            reportWriter.flush();
+        }
+    }
+
+    private String formatDifference(Difference difference) {
+        String details;
+        switch (difference.change) {
+            case ADDED:
+                details = difference.current.isEmpty() ? "" : ";" + difference.current;
+                break;
+            case REMOVED:
+                details = difference.baseline.isEmpty() ? "" : ";" + difference.baseline;
+                break;
+            case VERSION_CHANGED:
+                details = " version " + orNone(difference.baseline) + " → " + orNone(difference.current);
+                break;
+            default:
+                details = " " + orNone(difference.baseline) + " → " + orNone(difference.current);
+        }
+        return builder()
+                .add(difference.change.role, "    " + difference.change.prefix + difference.clause)
+                .add(difference.change == Change.ADDED || difference.change == Change.REMOVED
+                        ? difference.change.role : DETAIL, details)
+                .build();
+    }
+
+    private static String orNone(String value) {
+        return value == null || value.isEmpty() ? "(none)" : value;
+    }
+
+    private void closeReport(ReportWriter reportWriter) {
+        if (reportWriter != null) {
+            try {
+                reportWriter.close();
+            } catch (IOException e) {
+                getLog().warn("Unable to write report file " + reportFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void printCoolHeader() {
+        String[] header = {
+                "  _____                          _____   _   __   __ ",
+                " |_   _|                        |  __ \\ (_) / _| / _|",
+                "   | |  _ __   ___  _   _ _   _ | |  | | _ | |_ | |_ ",
+                "   | | | '_ \\ / _ \\| | | | | | || |  | || ||  _||  _|",
+                "  _| |_| | | | (_) | |_| | |_| || |__| || || |  | |  ",
+                " |_____|_| |_|\\___/ \\__, |\\__,_||_____/ |_||_|  |_|  ",
+                "                     __/ |                           ",
+                "                    |___/                            "
+        };
+
+        for (String line : header) {
+            getLog().info(builder().add(HEADER, line).build());
+        }
+        getLog().info("");
+    }
+
+    /**
+     * The symbolic name, version and compared headers of a bundle, the only parts of its manifest kept in memory.
+     */
+    private static class BundleHeaders {
+        private final String file;
+        private final String symbolicName;
+        private final String version;
+        private final int majorVersion;
+        private final Map<String, String> headers;
+
+        private BundleHeaders(String file, String symbolicName, String version, Map<String, String> headers) {
+            this.file = file;
+            this.symbolicName = symbolicName;
+            this.version = version;
+            this.majorVersion = parseMajorVersion(version);
+            this.headers = headers;
+        }
+
+        /**
+         * Returns the major part of a Bundle-Version, 0 if there is none or if it is not a number, as for the OSGi
+         * default version.
+         */
+        private static int parseMajorVersion(String version) {
+            if (version == null) {
+                return 0;
+            }
+            String major = version.trim();
+            int dot = major.indexOf('.');
+            try {
+                return Integer.parseInt(dot < 0 ? major : major.substring(0, dot));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return version != null ? symbolicName + "/" + version : symbolicName;
+        }
+    }
+
+    /**
+     * A bundle of the baseline and its counterpart, either of which is null if the bundle was added or removed.
+     */
+    private static class BundlePair {
+        private final BundleHeaders baseline;
+        private final BundleHeaders current;
+
+        private BundlePair(BundleHeaders baseline, BundleHeaders current) {
+            this.baseline = baseline;
+            this.current = current;
+        }
+    }
+
+    private static class Difference {
+        private final String header;
+        private final String clause;
+        private final Change change;
+        private final String baseline;
+        private final String current;
+
+        private Difference(String header, String clause, Change change, String baseline, String current) {
+            this.header = header;
+            this.clause = clause;
+            this.change = change;
+            this.baseline = baseline;
+            this.current = current;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.mojos;
+
+import dev.inoyu.maven.plugins.osgi.utils.reports.ReportWriter;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ClassDirectoryScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ClassReferences;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ConstantPoolScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ParallelScanner;
+import org.apache.felix.utils.manifest.Clause;
+import org.apache.felix.utils.manifest.Parser;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import org.fusesource.jansi.AnsiConsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.Role.*;
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.builder;
+
+/**
+ * A Maven goal to explain the Import-Package header of a built bundle.
+ * It reads the imported packages from the bundle's own manifest, analyzes the classes of the bundle and of the jars
+ * embedded in it (its Bundle-ClassPath) once, and reports for every imported package the classes
+ * it originates from, instead of running find-package-usages once per imported package.
+ */
+@Mojo(name = "explain-imports")
+public class ExplainImportsMojo extends AbstractMojo {
+
+    private static final String PROJECT_CLASSES = ".";
+
+    private static final String[] REPORT_COLUMNS = {"package", "location", "class"};
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    /**
+     * The bundle whose Import-Package header is explained. Defaults to the main artifact of the project.
+     */
+    @Parameter(property = "bundle")
+    private File bundle;
+
+    /**
+     * The number of threads used to analyze the locations of the Bundle-ClassPath. Defaults to the number
+     * of available processors.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * Only report the number of classes each imported package originates from, without listing them.
+     */
+    @Parameter(property = "summary", defaultValue = "false")
+    private boolean summary;
+
+    /**
+     * An optional file to which the origins of the imported packages are also written, one record per class.
+     */
+    @Parameter(property = "reportFile")
+    private File reportFile;
+
+    /**
+     * The format of the report file: "jsonl" or "csv". Defaults to the extension of the report file, JSON Lines
+     * being used for any extension other than ".csv".
+     */
+    @Parameter(property = "reportFormat")
+    private String reportFormat;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        printCoolHeader();
+
+        File bundleFile = bundle != null ? bundle
+                : new File(project.getBuild().getDirectory(), project.getBuild().getFinalName() + ".jar");
+        if (!bundleFile.isFile()) {
+            throw new MojoExecutionException("Bundle " + bundleFile + " not found, the project must be packaged first");
+        }
+
+        ReportWriter reportWriter = null;
+        try {
+            Manifest manifest;
+            try (JarFile jarFile = new JarFile(bundleFile)) {
+                manifest = jarFile.getManifest();
+            }
+            if (manifest == null) {
+                throw new MojoExecutionException("No manifest found in " + bundleFile);
+            }
+            Attributes mainAttributes = manifest.getMainAttributes();
+
+            List<String> importedPackages = getClauseNames(mainAttributes.getValue("Import-Package"));
+            getLog().info(builder()
+                    .add(CONTEXT, "Explaining the ")
+                    .add(DETAIL, String.valueOf(importedPackages.size()))
+                    .add(CONTEXT, " imported packages of: ")
+                    .add(DETAIL, bundleFile.getPath())
+                    .build());
+            if (importedPackages.isEmpty()) {
+                return;
+            }
+
+            List<String> locations = getClauseNames(mainAttributes.getValue("Bundle-ClassPath"));
+            if (locations.isEmpty()) {
+                locations.add(PROJECT_CLASSES);
+            }
+
+            // Every location is analyzed once, all the imported packages being then looked up in its references
+            ParallelScanner scanner = new ParallelScanner(threads);
+            getLog().debug("Analyzing " + locations.size() + " Bundle-ClassPath locations using "
+                    + scanner.getThreads() + " threads");
+            Map<String, ClassReferences> referencesByLocation =
+                    scanner.scanAll(locations, location -> analyzeLocation(bundleFile, location, locations));
+
+            Map<String, Map<String, List<String>>> origins = new LinkedHashMap<>();
+            for (String importedPackage : importedPackages) {
+                origins.put(importedPackage, new LinkedHashMap<>());
+            }
+            for (Map.Entry<String, ClassReferences> locationReferences : referencesByLocation.entrySet()) {
+                String context = getContext(locationReferences.getKey());
+                for (Map.Entry<String, Set<String>> classReferences : locationReferences.getValue().getReferredPackages().entrySet()) {
+                    for (String referredPackage : classReferences.getValue()) {
+                        Map<String, List<String>> packageOrigins = origins.get(referredPackage);
+                        if (packageOrigins != null) {
+                            packageOrigins.computeIfAbsent(context, k -> new ArrayList<>()).add(classReferences.getKey());
+                        }
+                    }
+                }
+            }
+
+            if (reportFile != null) {
+                reportWriter = ReportWriter.open(reportFile, reportFormat, REPORT_COLUMNS);
+            }
+            List<String> unexplainedPackages = new ArrayList<>();
+            for (Map.Entry<String, Map<String, List<String>>> packageOrigins : origins.entrySet()) {
+                if (packageOrigins.getValue().isEmpty()) {
+                    unexplainedPackages.add(packageOrigins.getKey());
+                    if (reportWriter != null) {
+                        reportWriter.write(packageOrigins.getKey(), null, null);
+                    }
+                } else {
+                    printOrigins(packageOrigins.getKey(), packageOrigins.getValue(), reportWriter);
+                }
+            }
+
+            getLog().info(builder()
+                    .add(CONTEXT, "Explained ")
+                    .add(DETAIL, String.valueOf(importedPackages.size() - unexplainedPackages.size()))
+                    .add(CONTEXT, " of ")
+                    .add(DETAIL, String.valueOf(importedPackages.size()))
+                    .add(CONTEXT, " imported packages")
+                    .build());
+            if (!unexplainedPackages.isEmpty()) {
+                getLog().info(builder()
+                        .add(CONTEXT, "Not referred to by any class, probably added by the bundle instructions or"
+                                + " required by a descriptor: ")
+                        .add(ERROR, String.join(", ", unexplainedPackages))
+                        .build());
+            }
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoExecutionException("Error while explaining the imported packages of " + bundleFile, e);
+        } finally {
+            closeReport(reportWriter);
+            AnsiConsole.systemUninstall();
+        }
+    }
+
+    private void closeReport(ReportWriter reportWriter) {
+        if (reportWriter != null) {
+            try {
+                reportWriter.close();
+            } catch (IOException e) {
+                getLog().warn("Unable to write report file " + reportFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static List<String> getClauseNames(String header) {
+        List<String> names = new ArrayList<>();
+        if (header != null) {
+            for (Clause clause : Parser.parseHeader(header)) {
+                if (!names.contains(clause.getName())) {
+                    names.add(clause.getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    private void printOrigins(String importedPackage, Map<String, List<String>> packageOrigins,
+                              ReportWriter reportWriter) throws IOException {
+        int classCount = 0;
+        for (List<String> classNames : packageOrigins.values()) {
+            classCount += classNames.size();
+        }
+        getLog().info(builder()
+                .add(CONTEXT, "📦 ")
+                .add(CLAUSE, importedPackage)
+                .add(CONTEXT, " is imported for ")
+                .add(DETAIL, String.valueOf(classCount))
+                .add(CONTEXT, classCount == 1 ? " class" : " classes")
+                .build());
+        for (Map.Entry<String, List<String>> locationOrigins : packageOrigins.entrySet()) {
+            if (!summary) {
+                getLog().info(builder().add(CONTEXT, "  in ").add(DETAIL, locationOrigins.getKey()).build());
+                for (String className : locationOrigins.getValue()) {
+                    getLog().info(builder().add(CONTEXT, "    ").add(DEPENDENCY, className).build());
+                }
+            }
+            if (reportWriter != null) {
+                for (String className : locationOrigins.getValue()) {
+                    reportWriter.write(importedPackage, locationOrigins.getKey(), className);
+                }
+            }
+        }
+        if (reportWriter != null) {
+            reportWriter.flush();
+        }
+    }
+
+    private String getContext(String location) {
+        return PROJECT_CLASSES.equals(location) ? "Bundle classes" : "Embedded: " + location;
+    }
+
+    /**
+     * Analyzes a location of the Bundle-ClassPath, reading the classes from the bundle itself.
+     */
+    private ClassReferences analyzeLocation(File bundleFile, String location, List<String> locations) throws Exception {
+        ConstantPoolScanner constantPoolScanner = new ConstantPoolScanner();
+        if (PROJECT_CLASSES.equals(location)) {
+            return analyzeBundleRoot(bundleFile, locations, constantPoolScanner);
+        }
+
+        getLog().debug("Analyzing " + location + " of " + bundleFile);
+        ClassReferences references = new ClassReferences();
+        try (ZipFile zipFile = new ZipFile(bundleFile)) {
+            ZipEntry embeddedJar = zipFile.getEntry(location);
+            if (embeddedJar != null && !embeddedJar.isDirectory()) {
+                try (ZipInputStream in = new ZipInputStream(zipFile.getInputStream(embeddedJar))) {
+                    ZipEntry entry;
+                    while ((entry = in.getNextEntry()) != null) {
+                        if (!entry.isDirectory() && ConstantPoolScanner.isClassFile(entry.getName())) {
+                            constantPoolScanner.scanClass(in.readAllBytes(), references);
+                        }
+                    }
+                }
+                return references;
+            }
+
+            String prefix = location.endsWith("/") ? location : location + "/";
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!entry.isDirectory() && name.startsWith(prefix)
+                        && ConstantPoolScanner.isClassFile(name.substring(prefix.length()))) {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        constantPoolScanner.scanClass(in.readAllBytes(), references);
+                    }
+                }
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Analyzes the class entries of the bundle root, the ones of the other Bundle-ClassPath locations excepted.
+     * The bundle is the reference: the project classes are only an optimization, scanned incrementally so that the
+     * references of the entries copied from them, recognized by their size and CRC-32, are reused, while the other
+     * entries, such as the classes inlined from dependencies or the ones of a bundle built elsewhere, are parsed
+     * from the bundle.
+     */
+    private ClassReferences analyzeBundleRoot(File bundleFile, List<String> locations,
+                                              ConstantPoolScanner constantPoolScanner) throws Exception {
+        ClassDirectoryScanner directoryScanner = null;
+        File classesDir = new File(project.getBuild().getOutputDirectory());
+        if (classesDir.isDirectory()) {
+            File stateFile = new File(project.getBuild().getDirectory(),
+                    "osgi-utils/classes-" + FindPackageUsagesMojo.ENGINE_CONSTANT_POOL + ".refs");
+            directoryScanner = new ClassDirectoryScanner(stateFile);
+            directoryScanner.scan(classesDir,
+                    (classFile, classBytes, referredPackages) -> constantPoolScanner.scanClass(classBytes, referredPackages));
+        }
+
+        getLog().debug("Analyzing the root of " + bundleFile);
+        ClassReferences references = new ClassReferences();
+        int reusedCount = 0;
+        int analyzedCount = 0;
+        try (ZipFile zipFile = new ZipFile(bundleFile)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !ConstantPoolScanner.isClassFile(name) || isInOtherLocation(name, locations)) {
+                    continue;
+                }
+                if (directoryScanner != null && directoryScanner.addReferences(name, entry.getSize(), entry.getCrc(), references)) {
+                    reusedCount++;
+                } else {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        constantPoolScanner.scanClass(in.readAllBytes(), references);
+                    }
+                    analyzedCount++;
+                }
+            }
+        }
+        getLog().debug("Reused the references of " + reusedCount + " project classes of " + bundleFile
+                + ", analyzed " + analyzedCount + " other classes");
+        return references;
+    }
+
+    private static boolean isInOtherLocation(String name, List<String> locations) {
+        for (String location : locations) {
+            if (!PROJECT_CLASSES.equals(location) && name.startsWith(location.endsWith("/") ? location : location + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void printCoolHeader() {
+        String[] header = {
+                "  _____                         ______            _       _       ",
+                " |_   _|                       |  ____|          | |     (_)      ",
+                "   | |  _ __   ___  _   _ _   _| |__  __  ___ __ | | __ _ _ _ __  ",
+                "   | | | '_ \\ / _ \\| | | | | | |  __| \\ \\/ / '_ \\| |/ _` | | '_ \\ ",
+                "  _| |_| | | | (_) | |_| | |_| | |____ >  <| |_) | | (_| | | | | |",
+                " |_____|_| |_|\\___/ \\__, |\\__,_|______/_/\\_\\ .__/|_|\\__,_|_|_| |_|",
+                "                     __/ |                 | |                    ",
+                "                    |___/                  |_|                    "
+        };
+
+        for (String line : header) {
+            getLog().info(builder().add(HEADER, line).build());
+        }
+        getLog().info("");
+    }
+}
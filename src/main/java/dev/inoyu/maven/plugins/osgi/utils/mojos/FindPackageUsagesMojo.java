@@ -19,6 +19,21 @@ import aQute.bnd.osgi.Analyzer;
 import aQute.bnd.osgi.Jar;
 import aQute.bnd.osgi.Descriptors;
 import aQute.bnd.osgi.Clazz;
+import aQute.bnd.osgi.EmbeddedResource;
+import dev.inoyu.maven.plugins.osgi.utils.reports.ArtifactUsages;
+import dev.inoyu.maven.plugins.osgi.utils.reports.ReportUsageListener;
+import dev.inoyu.maven.plugins.osgi.utils.reports.ReportWriter;
+import dev.inoyu.maven.plugins.osgi.utils.reports.UsageListener;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.DependencyWalker;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.DependencyWalker.VisitedNode;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.SessionCache;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ClassDirectoryScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ClassReferences;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ConstantPoolScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.NestedJarScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.PackageMatcher;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ParallelScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ReferenceIndex;
 import dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
@@ -29,15 +44,12 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
-import org.apache.maven.project.ProjectBuildingRequest;
-import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.handler.ArtifactHandler;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
-import org.apache.maven.shared.dependency.graph.DependencyNode;
 
 import org.fusesource.jansi.AnsiConsole;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.builder;
@@ -45,9 +57,6 @@ import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.Role.*;
 
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
-import org.eclipse.aether.artifact.DefaultArtifact;
-import org.eclipse.aether.resolution.ArtifactRequest;
-import org.eclipse.aether.resolution.ArtifactResult;
 
 /**
  * A Maven goal to find all usages of a package inside an OSGi project and its
@@ -60,9 +69,17 @@ import org.eclipse.aether.resolution.ArtifactResult;
 @Mojo(name = "find-package-usages", requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
 public class FindPackageUsagesMojo extends AbstractMojo {
 
+    static final String ENGINE_BND = "bnd";
+    static final String ENGINE_CONSTANT_POOL = "constant-pool";
+
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     private MavenProject project;
 
+    /**
+     * The packages whose usages are searched for, including their subpackages. Several packages may be given,
+     * separated by commas. Packages are matched on segment boundaries: org.foo matches org.foo.bar, but not
+     * org.foobar.
+     */
     @Parameter(property = "package", required = true)
     private String packageName;
 
@@ -78,122 +95,450 @@ public class FindPackageUsagesMojo extends AbstractMojo {
     @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
     private RepositorySystemSession repoSession;
 
+    /**
+     * The number of threads used to analyze the project classes and the dependency jars. Defaults to the number
+     * of available processors.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * The engine used to compute the packages referred to by each class: "bnd" runs the full BND analyzer,
+     * "constant-pool" only parses the parts of the class files that hold references, which is much faster
+     * and gives the same results.
+     */
+    @Parameter(property = "engine", defaultValue = ENGINE_BND)
+    private String engine;
+
+    /**
+     * Whether the classes of the jars nested in the dependency jars, such as the jars embedded in bundles or the
+     * bundles of KAR files, are also analyzed. They are streamed from the enclosing jar, without being extracted.
+     */
+    @Parameter(property = "scanNestedJars", defaultValue = "true")
+    private boolean scanNestedJars;
+
+    /**
+     * The memory budget of the analysis of nested jars: the size, in bytes, of the largest class file read in
+     * memory at once. Larger class files are skipped with a warning.
+     */
+    @Parameter(property = "maxNestedEntrySize", defaultValue = "16777216")
+    private long maxNestedEntrySize;
+
+    /**
+     * Whether the packages referred to by the classes of each dependency jar are kept in a persistent index, so
+     * that later runs, whatever the package searched for, only need to analyze new or modified jars. The project
+     * classes are always analyzed.
+     */
+    @Parameter(property = "useIndex", defaultValue = "true")
+    private boolean useIndex;
+
+    /**
+     * The directory of the persistent reference index. It is shared by all projects using the same local repository.
+     */
+    @Parameter(property = "indexDirectory", defaultValue = "${user.home}/.m2/osgi-utils/usages-index")
+    private File indexDirectory;
+
+    /**
+     * The maximum number of classes listed with their usages, 0 meaning no limit. Once it is reached, only the
+     * number of usages found in each artifact is reported.
+     */
+    @Parameter(property = "maxUsages", defaultValue = "0")
+    private int maxUsages;
+
+    /**
+     * Only report the number of usages found in each artifact, without listing the classes.
+     */
+    @Parameter(property = "summary", defaultValue = "false")
+    private boolean summary;
+
+    /**
+     * An optional file to which the usages are also written, one record per class, as they are found.
+     */
+    @Parameter(property = "reportFile")
+    private File reportFile;
+
+    /**
+     * The format of the report file: "jsonl" or "csv". Defaults to the extension of the report file, JSON Lines
+     * being used for any extension other than ".csv".
+     */
+    @Parameter(property = "reportFormat")
+    private String reportFormat;
+
+    private ReferenceIndex referenceIndex;
+
+    private SessionCache sessionCache;
+
+    private PackageMatcher packageMatcher;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        if (!ENGINE_BND.equals(engine) && !ENGINE_CONSTANT_POOL.equals(engine)) {
+            throw new MojoExecutionException("Unknown engine '" + engine + "', expected '" + ENGINE_BND + "' or '"
+                    + ENGINE_CONSTANT_POOL + "'");
+        }
+        try {
+            packageMatcher = PackageMatcher.compileSubtrees(packageName);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
         printCoolHeader();
         getLog().info(builder()
                 .add(CONTEXT, "Searching for usages of package: ")
                 .add(DETAIL, packageName)
                 .build());
 
+        ReportWriter reportWriter = null;
         try {
-            File classesDir = new File(project.getBuild().getOutputDirectory());
-            analyzeWithBnd(classesDir, "Project classes", Collections.emptyList());
+            // Collect every node of the graphs first, so that each distinct jar is analyzed once, in parallel
+            sessionCache = SessionCache.get(repoSession);
+            Map<File, MavenProject> projectsByClassesDir = new LinkedHashMap<>();
+            for (MavenProject analyzedProject : getAnalyzedProjects()) {
+                File classesDir = new File(analyzedProject.getBuild().getOutputDirectory());
+                if (classesDir.isDirectory()) {
+                    projectsByClassesDir.put(classesDir, analyzedProject);
+                }
+            }
+            List<VisitedNode> visitedNodes = new DependencyWalker(session, dependencyGraphBuilder, repoSystem,
+                    repoSession, project.getRemoteProjectRepositories(), getLog()).walk(getAnalyzedProjects());
 
-            ProjectBuildingRequest projectBuildingRequest = session.getProjectBuildingRequest();
-            projectBuildingRequest.setProject(project);
+            // Group the trails per distinct file, so that each file is analyzed and reported once
+            Map<File, List<VisitedNode>> nodesByFile = new LinkedHashMap<>();
+            for (File classesDir : projectsByClassesDir.keySet()) {
+                nodesByFile.put(classesDir, Collections.emptyList());
+            }
+            for (VisitedNode visitedNode : visitedNodes) {
+                if (visitedNode.getFile() != null && visitedNode.getFile().isFile()) {
+                    nodesByFile.computeIfAbsent(visitedNode.getFile(), k -> new ArrayList<>()).add(visitedNode);
+                }
+            }
+
+            if (useIndex) {
+                // References including the nested jars are kept apart from the ones of the top-level classes only
+                referenceIndex = new ReferenceIndex(indexDirectory, scanNestedJars ? engine + "-nested" : engine);
+            }
+            ParallelScanner scanner = new ParallelScanner(threads);
+            getLog().debug("Analyzing " + nodesByFile.size() + " distinct files using " + scanner.getThreads()
+                    + " threads and the " + engine + " engine");
+
+            List<UsageListener> listeners = new ArrayList<>();
+            listeners.add(new LogUsageListener());
+            if (reportFile != null) {
+                reportWriter = ReportWriter.open(reportFile, reportFormat, ReportUsageListener.COLUMNS);
+                listeners.add(new ReportUsageListener(reportWriter, packageName));
+            }
 
-            DependencyNode rootNode = dependencyGraphBuilder.buildDependencyGraph(projectBuildingRequest, null);
-            analyzeDependencyNode(rootNode, new ArrayList<>());
+            // Usages are reported as soon as a file and all the ones before it in the graph have been analyzed
+            scanner.scanInOrder(nodesByFile.keySet(),
+                    file -> projectsByClassesDir.containsKey(file)
+                            ? analyzeClassesDirectory(file, projectsByClassesDir.get(file))
+                            : analyzeWithCache(file),
+                    (file, references) -> {
+                        ArtifactUsages usages = findUsages(references, projectsByClassesDir.get(file), nodesByFile.get(file));
+                        if (usages != null) {
+                            for (UsageListener listener : listeners) {
+                                listener.artifactUsages(usages);
+                            }
+                        }
+                    });
+            for (UsageListener listener : listeners) {
+                listener.finished();
+            }
         } catch (Exception e) {
             throw new MojoExecutionException("Error while searching for package usages", e);
         } finally {
+            saveReferenceIndex();
+            closeReport(reportWriter);
             AnsiConsole.systemUninstall();
         }
     }
 
-    private void analyzeDependencyNode(DependencyNode node, List<String> dependencyTrail) throws Exception {
-        Artifact artifact = node.getArtifact();
-        String artifactKey = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
-
-        List<String> currentTrail = new ArrayList<>(dependencyTrail);
-        currentTrail.add(artifactKey + (artifact.isOptional() ? " (optional)" : ""));
-
-        File file = artifact.getFile();
-        if (file == null) {
-            file = resolveArtifactFile(artifact);
+    private void saveReferenceIndex() {
+        if (referenceIndex == null) {
+            return;
         }
-
-        if (file != null && file.isFile()) {
-            analyzeWithBnd(file, "Dependency: " + artifactKey, currentTrail);
+        try {
+            referenceIndex.save();
+        } catch (IOException e) {
+            getLog().warn("Unable to write the checksums of reference index " + referenceIndex.getDirectory()
+                    + ": " + e.getMessage());
         }
+    }
 
-        for (DependencyNode child : node.getChildren()) {
-            analyzeDependencyNode(child, currentTrail);
+    private void closeReport(ReportWriter reportWriter) {
+        if (reportWriter != null) {
+            try {
+                reportWriter.close();
+            } catch (IOException e) {
+                getLog().warn("Unable to write report file " + reportFile + ": " + e.getMessage());
+            }
         }
     }
 
-    private File resolveArtifactFile(Artifact artifact) throws Exception {
-        // First, check the local repository
-        File localFile = new File(repoSession.getLocalRepository().getBasedir(),
-                repoSession.getLocalRepositoryManager().getPathForLocalArtifact(new DefaultArtifact(
-                        artifact.getGroupId(),
-                        artifact.getArtifactId(),
-                        artifact.getClassifier(),
-                        getArtifactExtension(artifact),
-                        artifact.getVersion())));
+    /**
+     * The projects whose classes and dependencies are analyzed: the current project, or all the projects of the
+     * reactor for the aggregate goal.
+     */
+    protected List<MavenProject> getAnalyzedProjects() {
+        return Collections.singletonList(project);
+    }
 
-        if (localFile.exists()) {
-            return localFile;
+    protected boolean isAggregate() {
+        return false;
+    }
+
+    private ClassReferences analyzeWithCache(File file) throws Exception {
+        return sessionCache.getScanResult("references-" + engine + (scanNestedJars ? "-nested" : ""), file,
+                () -> analyzeWithIndex(file));
+    }
+
+    private ClassReferences analyzeWithIndex(File file) throws Exception {
+        if (referenceIndex == null) {
+            return analyze(file);
         }
+        try {
+            ClassReferences references = referenceIndex.get(file);
+            if (references != null) {
+                getLog().debug("Using indexed references of " + file);
+                return references;
+            }
+        } catch (IOException e) {
+            getLog().warn("Unable to read the indexed references of " + file + ", analyzing it again: " + e.getMessage());
+        }
+        ClassReferences references = analyze(file);
+        try {
+            referenceIndex.put(file, references);
+        } catch (IOException e) {
+            getLog().warn("Unable to index the references of " + file + ": " + e.getMessage());
+        }
+        return references;
+    }
 
-        // If not found locally, resolve from remote repositories
-        DefaultArtifact aetherArtifact = new DefaultArtifact(
-                artifact.getGroupId(),
-                artifact.getArtifactId(),
-                artifact.getClassifier(),
-                getArtifactExtension(artifact),
-                artifact.getVersion());
+    /**
+     * Analyzes the project classes incrementally: only the class files added or modified since the previous run
+     * are parsed again.
+     */
+    private ClassReferences analyzeClassesDirectory(File classesDir, MavenProject classesProject) throws Exception {
+        File stateFile = new File(classesProject.getBuild().getDirectory(), "osgi-utils/classes-" + engine + ".refs");
+        ClassDirectoryScanner directoryScanner = new ClassDirectoryScanner(stateFile);
+        ClassReferences references;
+        if (ENGINE_CONSTANT_POOL.equals(engine)) {
+            ConstantPoolScanner constantPoolScanner = new ConstantPoolScanner();
+            references = directoryScanner.scan(classesDir,
+                    (classFile, classBytes, referredPackages) -> constantPoolScanner.scanClass(classBytes, referredPackages));
+        } else {
+            try (Analyzer analyzer = new Analyzer()) {
+                references = directoryScanner.scan(classesDir, (classFile, classBytes, referredPackages) -> {
+                    Clazz clazz = new Clazz(analyzer, classesDir.toPath().relativize(classFile).toString(),
+                            new EmbeddedResource(classBytes, 0L));
+                    clazz.parseClassFile();
+                    for (Descriptors.PackageRef ref : clazz.getReferred()) {
+                        referredPackages.add(ref.getFQN());
+                    }
+                    return clazz.getClassName().getFQN();
+                });
+            }
+        }
+        getLog().debug("Analyzed " + directoryScanner.getAnalyzedCount() + " modified class files of " + classesDir
+                + ", reused the references of " + directoryScanner.getReusedCount() + " unchanged ones");
+        return references;
+    }
 
-        ArtifactRequest request = new ArtifactRequest();
-        request.setArtifact(aetherArtifact);
-        request.setRepositories(project.getRemoteProjectRepositories());
+    private ClassReferences analyze(File file) throws Exception {
+        ClassReferences references = ENGINE_CONSTANT_POOL.equals(engine) ? analyzeWithConstantPool(file) : analyzeWithBnd(file);
+        if (scanNestedJars) {
+            analyzeNestedJars(file, references);
+        }
+        return references;
+    }
 
-        ArtifactResult result = repoSystem.resolveArtifact(repoSession, request);
-        return result.getArtifact().getFile();
+    /**
+     * Analyzes the classes of the jars nested in a jar, streamed one at a time from the enclosing jar. Their names
+     * are followed by the path of the nested jar they come from.
+     */
+    private void analyzeNestedJars(File file, ClassReferences references) throws Exception {
+        NestedJarScanner nestedJarScanner = new NestedJarScanner(maxNestedEntrySize);
+        if (ENGINE_CONSTANT_POOL.equals(engine)) {
+            ConstantPoolScanner constantPoolScanner = new ConstantPoolScanner();
+            nestedJarScanner.scanClasses(file, (jarPath, classBytes) -> {
+                Set<String> referredPackages = new LinkedHashSet<>();
+                try {
+                    String className = constantPoolScanner.scanClass(classBytes, referredPackages);
+                    references.add(className + " (" + jarPath + ")", referredPackages);
+                } catch (IOException e) {
+                    getLog().warn("Unable to analyze a class of nested jar " + jarPath + " of " + file + ": " + e.getMessage());
+                }
+            });
+        } else {
+            try (Analyzer analyzer = new Analyzer()) {
+                nestedJarScanner.scanClasses(file, (jarPath, classBytes) -> {
+                    Clazz clazz = new Clazz(analyzer, jarPath, new EmbeddedResource(classBytes, 0L));
+                    clazz.parseClassFile();
+                    Set<String> referredPackages = new LinkedHashSet<>();
+                    for (Descriptors.PackageRef ref : clazz.getReferred()) {
+                        referredPackages.add(ref.getFQN());
+                    }
+                    references.add(clazz.getClassName().getFQN() + " (" + jarPath + ")", referredPackages);
+                });
+            }
+        }
+        for (String skippedEntry : nestedJarScanner.getSkippedEntries()) {
+            getLog().warn("Unable to analyze nested entry " + skippedEntry + " of " + file);
+        }
     }
 
-    private void analyzeWithBnd(File file, String context, List<String> dependencyTrail) throws Exception {
-        try (Jar jar = new Jar(file)) {
-            Analyzer analyzer = new Analyzer();
+    private ClassReferences analyzeWithBnd(File file) throws Exception {
+        getLog().debug("Analyzing " + file);
+        ClassReferences references = new ClassReferences();
+        try (Jar jar = new Jar(file); Analyzer analyzer = new Analyzer()) {
             analyzer.setJar(jar);
             analyzer.analyze();
 
             for (Clazz clazz : analyzer.getClassspace().values()) {
-                String className = clazz.getClassName().getFQN();
+                Set<String> referredPackages = new LinkedHashSet<>();
                 for (Descriptors.PackageRef ref : clazz.getReferred()) {
-                    if (ref.getFQN().startsWith(packageName)) {
-                        getLog().info(builder()
-                                .add(CONTEXT, "📦 Usage found in ")
-                                .add(DETAIL, context)
-                                .add(CONTEXT, ": ")
-                                .add(CLAUSE, className)
-                                .add(CONTEXT, " uses ")
-                                .add(DIRECTIVE, ref.getFQN())
-                                .build());
-                        printDependencyTrail(dependencyTrail);
-                        getLog().info(""); // Empty line for readability
+                    referredPackages.add(ref.getFQN());
+                }
+                references.add(clazz.getClassName().getFQN(), referredPackages);
+            }
+        }
+        return references;
+    }
+
+    private ClassReferences analyzeWithConstantPool(File file) throws Exception {
+        getLog().debug("Analyzing " + file);
+        ConstantPoolScanner constantPoolScanner = new ConstantPoolScanner();
+        ClassReferences references = constantPoolScanner.scan(file);
+        for (String skippedClass : constantPoolScanner.getSkippedClasses()) {
+            getLog().warn("Unable to analyze class " + skippedClass);
+        }
+        return references;
+    }
+
+    /**
+     * Returns the usages of the searched packages in the references of a file, or null if there are none. The
+     * trails reaching the file are only built once a usage is found.
+     */
+    private ArtifactUsages findUsages(ClassReferences references, MavenProject classesProject, List<VisitedNode> nodes) {
+        ArtifactUsages usages = null;
+        for (Map.Entry<String, Set<String>> classReferences : references.getReferredPackages().entrySet()) {
+            for (String referredPackage : classReferences.getValue()) {
+                if (packageMatcher.matches(referredPackage)) {
+                    if (usages == null) {
+                        usages = newArtifactUsages(classesProject, nodes);
                     }
+                    usages.addUsage(classReferences.getKey(), referredPackage);
                 }
             }
+        }
+        return usages;
+    }
 
-            analyzer.close();
+    private ArtifactUsages newArtifactUsages(MavenProject classesProject, List<VisitedNode> nodes) {
+        if (classesProject != null) {
+            String projectKey = DependencyWalker.getKey(classesProject);
+            if (isAggregate()) {
+                return new ArtifactUsages("Project classes of " + projectKey, projectKey,
+                        Collections.singletonList(Collections.singletonList(projectKey)));
+            }
+            return new ArtifactUsages("Project classes", null, Collections.emptyList());
         }
+        Set<List<String>> trails = new LinkedHashSet<>();
+        for (VisitedNode node : nodes) {
+            trails.add(node.getTrail());
+        }
+        String artifactKey = nodes.get(0).getArtifactKey();
+        return new ArtifactUsages("Dependency: " + artifactKey, artifactKey, new ArrayList<>(trails));
     }
 
-    private void printDependencyTrail(List<String> dependencyTrail) {
-        if (!dependencyTrail.isEmpty()) {
-            getLog().info(builder().add(CONTEXT, "Dependency trail:").build());
-            for (int i = 0; i < dependencyTrail.size(); i++) {
-                String dep = dependencyTrail.get(i);
-                ThemeManager.ColorBuilder builder = builder();
-                builder.add(CONTEXT, "  ".repeat(i) + "├─ ");
-                if (dep.contains("(optional)")) {
-                    builder.add(DEPENDENCY, dep.replace(" (optional)", "")).add(ATTRIBUTE, " (optional)");
-                } else {
-                    builder.add(DEPENDENCY, dep);
+    /**
+     * Logs the usages of each artifact as a block: the classes using the package, then the trails reaching
+     * the artifact, printed once. When aggregating, the usages are also attributed to the modules at the root
+     * of the trails.
+     */
+    private class LogUsageListener implements UsageListener {
+        private final Map<String, Integer> moduleUsageCounts = new LinkedHashMap<>();
+        private int listedClasses;
+        private int usageCount;
+        private int classCount;
+        private int artifactCount;
+
+        @Override
+        public void artifactUsages(ArtifactUsages usages) {
+            usageCount += usages.getUsageCount();
+            classCount += usages.getClassCount();
+            artifactCount++;
+            if (isAggregate()) {
+                Set<String> modules = new LinkedHashSet<>();
+                for (List<String> trail : usages.getTrails()) {
+                    modules.add(trail.get(0));
+                }
+                for (String module : modules) {
+                    moduleUsageCounts.merge(module, usages.getUsageCount(), Integer::sum);
+                }
+            }
+
+            getLog().info(builder()
+                    .add(CONTEXT, "📦 Usage found in ")
+                    .add(DETAIL, usages.getContext())
+                    .add(CONTEXT, ": ")
+                    .add(DETAIL, String.valueOf(usages.getUsageCount()))
+                    .add(CONTEXT, usages.getUsageCount() == 1 ? " usage in " : " usages in ")
+                    .add(DETAIL, String.valueOf(usages.getClassCount()))
+                    .add(CONTEXT, usages.getClassCount() == 1 ? " class" : " classes")
+                    .build());
+            if (!summary) {
+                for (Map.Entry<String, List<String>> classUsages : usages.getUsages().entrySet()) {
+                    if (maxUsages > 0 && listedClasses >= maxUsages) {
+                        break;
+                    }
+                    listedClasses++;
+                    ThemeManager.ColorBuilder line = builder()
+                            .add(CONTEXT, "  ")
+                            .add(CLAUSE, classUsages.getKey())
+                            .add(CONTEXT, " uses ");
+                    for (int i = 0; i < classUsages.getValue().size(); i++) {
+                        if (i > 0) {
+                            line.add(CONTEXT, ", ");
+                        }
+                        line.add(DIRECTIVE, classUsages.getValue().get(i));
+                    }
+                    getLog().info(line.build());
                 }
-                getLog().info(builder.build());
+            }
+            for (List<String> trail : usages.getTrails()) {
+                DependencyWalker.printDependencyTrail(getLog(), trail);
+            }
+            getLog().info(""); // Empty line for readability
+        }
+
+        @Override
+        public void finished() {
+            for (Map.Entry<String, Integer> moduleUsageCount : moduleUsageCounts.entrySet()) {
+                getLog().info(builder()
+                        .add(CONTEXT, "Module ")
+                        .add(DEPENDENCY, moduleUsageCount.getKey())
+                        .add(CONTEXT, ": ")
+                        .add(DETAIL, String.valueOf(moduleUsageCount.getValue()))
+                        .add(CONTEXT, moduleUsageCount.getValue() == 1 ? " usage" : " usages")
+                        .build());
+            }
+            getLog().info(builder()
+                    .add(CONTEXT, "Found ")
+                    .add(DETAIL, String.valueOf(usageCount))
+                    .add(CONTEXT, " usages of ")
+                    .add(DETAIL, packageName)
+                    .add(CONTEXT, " in ")
+                    .add(DETAIL, String.valueOf(classCount))
+                    .add(CONTEXT, " classes of ")
+                    .add(DETAIL, String.valueOf(artifactCount))
+                    .add(CONTEXT, " locations")
+                    .build());
+            if (!summary && maxUsages > 0 && classCount > listedClasses) {
+                getLog().info(builder()
+                        .add(CONTEXT, "Only the first ")
+                        .add(DETAIL, String.valueOf(listedClasses))
+                        .add(CONTEXT, " classes were listed, use -DmaxUsages to change the limit")
+                        .build());
             }
         }
     }
@@ -224,9 +569,4 @@ public class FindPackageUsagesMojo extends AbstractMojo {
         getLog().info("");
     }
 
-    private String getArtifactExtension(Artifact artifact) {
-        ArtifactHandler handler = artifact.getArtifactHandler();
-        return handler.getExtension();
-    }
-
 }
@@ -0,0 +1,515 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.mojos;
+
+import dev.inoyu.maven.plugins.osgi.utils.reports.ReportWriter;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.DependencyWalker;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.DependencyWalker.VisitedNode;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.SessionCache;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ConstantPoolScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.NestedJarScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.PackageIndex;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.PackageProviders;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ParallelScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ZipCentralDirectory;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+
+import org.fusesource.jansi.AnsiConsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.Role.*;
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.builder;
+
+/**
+ * A Maven goal to find the packages provided by more than one location among the project classes and all its
+ * transitive dependencies, and the classes of those split packages whose copies differ.
+ * The packages of every distinct jar are listed from its zip central directory in a single pass, and only the
+ * entries of the split packages are then compared, using the checksums recorded in the central directories. The
+ * packages of the jars nested in the dependency jars take part in the comparison too, their classes being
+ * checksummed while they are streamed from the enclosing jar.
+ */
+@Mojo(name = "find-split-packages", requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
+public class FindSplitPackagesMojo extends AbstractMojo {
+
+    private static final String[] REPORT_COLUMNS = {"package", "class", "artifacts", "differs"};
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Component
+    private DependencyGraphBuilder dependencyGraphBuilder;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Component
+    private RepositorySystem repoSystem;
+
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repoSession;
+
+    /**
+     * The number of threads used to scan the dependency jars. Defaults to the number of available processors.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * Whether the classes of the split packages are compared, to report the duplicate classes whose content
+     * differs from one location to the other.
+     */
+    @Parameter(property = "checkDuplicateClasses", defaultValue = "true")
+    private boolean checkDuplicateClasses;
+
+    /**
+     * Whether the packages of the jars nested in the dependency jars, such as the jars embedded in bundles, are
+     * also taken into account. They are streamed from the enclosing jar, without being extracted. The classes of
+     * the split packages found in nested jars are compared like the other ones, a nested copy of a class being
+     * ignored when the enclosing jar also holds it directly.
+     */
+    @Parameter(property = "scanNestedJars", defaultValue = "true")
+    private boolean scanNestedJars;
+
+    /**
+     * Whether the packages found in each dependency jar are kept in a persistent index, shared with the
+     * locate-package goal, so that later runs only need to scan new or modified jars. As the index includes the
+     * packages of the nested jars, it is only used when they are taken into account.
+     */
+    @Parameter(property = "useIndex", defaultValue = "true")
+    private boolean useIndex;
+
+    /**
+     * The location of the persistent package index. It is shared by all projects using the same local repository.
+     */
+    @Parameter(property = "indexFile", defaultValue = "${user.home}/.m2/osgi-utils/package-index.bin")
+    private File indexFile;
+
+    /**
+     * An optional file to which the split packages are also written, one record per split package and one
+     * record per duplicate class.
+     */
+    @Parameter(property = "reportFile")
+    private File reportFile;
+
+    /**
+     * The format of the report file: "jsonl" or "csv". Defaults to the extension of the report file, JSON Lines
+     * being used for any extension other than ".csv".
+     */
+    @Parameter(property = "reportFormat")
+    private String reportFormat;
+
+    private PackageIndex packageIndex;
+
+    private SessionCache sessionCache;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        printCoolHeader();
+        getLog().info(builder().add(CONTEXT, "Searching for split packages of: ").add(DETAIL, project.getId()).build());
+
+        ReportWriter reportWriter = null;
+        try {
+            sessionCache = SessionCache.get(repoSession);
+
+            // Every distinct location gets an id, the project classes coming first
+            List<String> locationNames = new ArrayList<>();
+            List<File> locationFiles = new ArrayList<>();
+            File classesDir = new File(project.getBuild().getOutputDirectory());
+            if (classesDir.isDirectory()) {
+                locationNames.add("Project classes");
+                locationFiles.add(classesDir);
+            }
+            for (Map.Entry<File, String> dependency : collectDependencyFiles().entrySet()) {
+                locationNames.add(dependency.getValue());
+                locationFiles.add(dependency.getKey());
+            }
+
+            if (useIndex && scanNestedJars) {
+                packageIndex = new PackageIndex(indexFile);
+                try {
+                    packageIndex.load();
+                } catch (IOException e) {
+                    getLog().warn("Unable to read package index " + indexFile + ", it will be rebuilt: " + e.getMessage());
+                }
+            }
+
+            ParallelScanner scanner = new ParallelScanner(threads);
+            getLog().debug("Scanning " + locationFiles.size() + " distinct locations using " + scanner.getThreads() + " threads");
+            PackageProviders packageProviders = new PackageProviders();
+            List<Integer> locationIds = new ArrayList<>();
+            for (int i = 0; i < locationFiles.size(); i++) {
+                locationIds.add(i);
+            }
+            scanner.scanInOrder(locationIds, id -> listPackages(locationFiles.get(id)), packageProviders::add);
+            savePackageIndex();
+
+            SortedSet<String> splitPackages = packageProviders.getSplitPackages();
+
+            SortedMap<String, DuplicateClass> duplicateClasses = new TreeMap<>();
+            if (checkDuplicateClasses && !splitPackages.isEmpty()) {
+                Map<Integer, Set<String>> splitPackagesByLocation = new TreeMap<>();
+                for (String splitPackage : splitPackages) {
+                    for (int id : packageProviders.getProviders(splitPackage)) {
+                        splitPackagesByLocation.computeIfAbsent(id, k -> new HashSet<>()).add(splitPackage);
+                    }
+                }
+                scanner.scanInOrder(splitPackagesByLocation.keySet(),
+                        id -> listClassChecksums(locationFiles.get(id), splitPackagesByLocation.get(id)),
+                        (id, checksums) -> {
+                            for (Map.Entry<String, Long> checksum : checksums.entrySet()) {
+                                duplicateClasses.computeIfAbsent(checksum.getKey(), k -> new DuplicateClass())
+                                        .add(id, checksum.getValue());
+                            }
+                        });
+            }
+
+            if (reportFile != null) {
+                reportWriter = ReportWriter.open(reportFile, reportFormat, REPORT_COLUMNS);
+            }
+            int differingClassCount = 0;
+            for (String splitPackage : splitPackages) {
+                List<String> providers = getNames(packageProviders.getProviders(splitPackage), locationNames);
+                getLog().info(builder()
+                        .add(CONTEXT, "🔀 Split package ")
+                        .add(CLAUSE, splitPackage)
+                        .add(CONTEXT, " is provided by ")
+                        .add(DETAIL, String.valueOf(providers.size()))
+                        .add(CONTEXT, " locations")
+                        .build());
+                for (String provider : providers) {
+                    getLog().info(builder().add(CONTEXT, "  ├─ ").add(DEPENDENCY, provider).build());
+                }
+                if (reportWriter != null) {
+                    reportWriter.write(splitPackage, null, providers, null);
+                }
+
+                int identicalClassCount = 0;
+                String prefix = splitPackage.replace('.', '/') + "/";
+                for (Map.Entry<String, DuplicateClass> duplicateClass : duplicateClasses.subMap(prefix, prefix + Character.MAX_VALUE).entrySet()) {
+                    String entryName = duplicateClass.getKey();
+                    DuplicateClass copies = duplicateClass.getValue();
+                    if (entryName.indexOf('/', prefix.length()) >= 0 || copies.count < 2) {
+                        continue;
+                    }
+                    String className = entryName.substring(0, entryName.length() - ".class".length()).replace('/', '.');
+                    List<String> classProviders = getNames(Arrays.copyOf(copies.locationIds, copies.count), locationNames);
+                    boolean differs = copies.differs();
+                    if (differs) {
+                        differingClassCount++;
+                        getLog().info(builder()
+                                .add(CONTEXT, "  ⚠ ")
+                                .add(ERROR, className)
+                                .add(CONTEXT, " differs in ")
+                                .add(DEPENDENCY, String.join(", ", classProviders))
+                                .build());
+                    } else {
+                        identicalClassCount++;
+                    }
+                    if (reportWriter != null) {
+                        reportWriter.write(splitPackage, className, classProviders, differs);
+                    }
+                }
+                if (identicalClassCount > 0) {
+                    getLog().info(builder()
+                            .add(CONTEXT, "  ")
+                            .add(DETAIL, String.valueOf(identicalClassCount))
+                            .add(CONTEXT, identicalClassCount == 1 ? " identical duplicate class" : " identical duplicate classes")
+                            .build());
+                }
+                getLog().info(""); // Empty line for readability
+                if (reportWriter != null) {
+                    reportWriter.flush();
+                }
+            }
+
+            getLog().info(builder()
+                    .add(CONTEXT, "Found ")
+                    .add(DETAIL, String.valueOf(splitPackages.size()))
+                    .add(CONTEXT, " split packages among ")
+                    .add(DETAIL, String.valueOf(packageProviders.size()))
+                    .add(CONTEXT, " packages of ")
+                    .add(DETAIL, String.valueOf(locationFiles.size()))
+                    .add(CONTEXT, " locations")
+                    .build());
+            if (checkDuplicateClasses) {
+                getLog().info(builder()
+                        .add(CONTEXT, "Found ")
+                        .add(differingClassCount > 0 ? ERROR : DETAIL, String.valueOf(differingClassCount))
+                        .add(CONTEXT, " duplicate classes whose content differs")
+                        .build());
+            }
+        } catch (Exception e) {
+            throw new MojoExecutionException("Error while searching for split packages", e);
+        } finally {
+            closeReport(reportWriter);
+            AnsiConsole.systemUninstall();
+        }
+    }
+
+    private void closeReport(ReportWriter reportWriter) {
+        if (reportWriter != null) {
+            try {
+                reportWriter.close();
+            } catch (IOException e) {
+                getLog().warn("Unable to write report file " + reportFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void savePackageIndex() {
+        if (packageIndex == null) {
+            return;
+        }
+        try {
+            packageIndex.save();
+        } catch (IOException e) {
+            getLog().warn("Unable to write package index " + indexFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the distinct files of the dependency graph in graph order, with the key of the first artifact
+     * reaching each of them. The project itself is not resolved by the walker, its classes being scanned directly.
+     */
+    private Map<File, String> collectDependencyFiles() throws Exception {
+        List<VisitedNode> visitedNodes = new DependencyWalker(session, dependencyGraphBuilder, repoSystem,
+                repoSession, project.getRemoteProjectRepositories(), getLog()).walk(Collections.singletonList(project));
+        Map<File, String> dependencyFiles = new LinkedHashMap<>();
+        for (VisitedNode visitedNode : visitedNodes) {
+            File file = visitedNode.getFile();
+            if (file != null && file.isFile()) {
+                dependencyFiles.putIfAbsent(file, visitedNode.getArtifactKey());
+            }
+        }
+        return dependencyFiles;
+    }
+
+    private List<String> listPackages(File location) throws IOException {
+        Set<String> packages;
+        if (location.isDirectory()) {
+            packages = listDirectoryPackages(location.toPath());
+        } else {
+            try {
+                packages = sessionCache.getScanResult(scanNestedJars ? "packages-nested" : "packages", location,
+                        () -> listJarPackages(location));
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Error scanning " + location, e);
+            }
+        }
+
+        // Only Java packages can be split, META-INF and the other resource directories are expected in every jar
+        List<String> javaPackages = new ArrayList<>(packages.size());
+        for (String packageName : packages) {
+            if (isJavaPackage(packageName)) {
+                javaPackages.add(packageName);
+            }
+        }
+        return javaPackages;
+    }
+
+    private Set<String> listJarPackages(File jarFile) throws IOException {
+        Set<String> packages = packageIndex != null ? packageIndex.getPackages(jarFile) : null;
+        if (packages == null) {
+            getLog().debug("Scanning jar: " + jarFile);
+            packages = ZipCentralDirectory.listPackages(jarFile);
+            if (scanNestedJars) {
+                packages.addAll(listNestedPackages(jarFile));
+            }
+            if (packageIndex != null) {
+                packageIndex.putPackages(jarFile, packages);
+            }
+        }
+        return packages;
+    }
+
+    private Set<String> listNestedPackages(File jarFile) throws IOException {
+        NestedJarScanner nestedJarScanner = new NestedJarScanner(0);
+        try {
+            Set<String> nestedPackages = nestedJarScanner.listPackages(jarFile);
+            for (String skippedEntry : nestedJarScanner.getSkippedEntries()) {
+                getLog().warn("Unable to scan nested jar " + skippedEntry + " of " + jarFile);
+            }
+            return nestedPackages;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error scanning the nested jars of " + jarFile, e);
+        }
+    }
+
+    private static Set<String> listDirectoryPackages(Path root) throws IOException {
+        Set<String> packages = new TreeSet<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                Path parent = root.relativize(file).getParent();
+                if (attributes.isRegularFile() && parent != null) {
+                    packages.add(parent.toString().replace(File.separatorChar, '.'));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return packages;
+    }
+
+    private static boolean isJavaPackage(String packageName) {
+        for (String segment : packageName.split("\\.")) {
+            if (segment.isEmpty() || !Character.isJavaIdentifierStart(segment.charAt(0))) {
+                return false;
+            }
+            for (int i = 1; i < segment.length(); i++) {
+                if (!Character.isJavaIdentifierPart(segment.charAt(i))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lists the checksums of the class files of the given packages. For jars, they are the CRC-32 and sizes
+     * recorded in the central directory, for the project classes and the nested jars, the class files are hashed
+     * while streamed.
+     */
+    private Map<String, Long> listClassChecksums(File location, Set<String> packages) throws IOException {
+        Map<String, Long> checksums = new HashMap<>();
+        if (location.isDirectory()) {
+            byte[] buffer = new byte[8192];
+            for (String packageName : packages) {
+                Path packageDir = location.toPath().resolve(packageName.replace('.', File.separatorChar));
+                try (DirectoryStream<Path> classFiles = Files.newDirectoryStream(packageDir, "*.class")) {
+                    for (Path classFile : classFiles) {
+                        CRC32 crc = new CRC32();
+                        try (InputStream in = new CheckedInputStream(Files.newInputStream(classFile), crc)) {
+                            while (in.read(buffer) >= 0) {
+                                // The checksum is updated while reading
+                            }
+                        }
+                        checksums.put(packageName.replace('.', '/') + "/" + classFile.getFileName(),
+                                checksum(crc.getValue(), Files.size(classFile)));
+                    }
+                }
+            }
+        } else {
+            ZipCentralDirectory.visitEntries(location, packages, (name, crc, size) -> {
+                if (ConstantPoolScanner.isClassFile(name)) {
+                    checksums.put(name, checksum(crc, size));
+                }
+            });
+            if (scanNestedJars) {
+                listNestedClassChecksums(location, packages, checksums);
+            }
+        }
+        return checksums;
+    }
+
+    private void listNestedClassChecksums(File jarFile, Set<String> packages, Map<String, Long> checksums) throws IOException {
+        NestedJarScanner nestedJarScanner = new NestedJarScanner(0);
+        try {
+            nestedJarScanner.visitEntries(jarFile, packages, (name, crc, size) -> {
+                if (ConstantPoolScanner.isClassFile(name)) {
+                    checksums.putIfAbsent(name, checksum(crc, size));
+                }
+            });
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error scanning the nested jars of " + jarFile, e);
+        }
+        for (String skippedEntry : nestedJarScanner.getSkippedEntries()) {
+            getLog().warn("Unable to scan nested jar " + skippedEntry + " of " + jarFile);
+        }
+    }
+
+    private static long checksum(long crc, long size) {
+        return (crc << 32) | (size & 0xFFFFFFFFL);
+    }
+
+    private static List<String> getNames(int[] locationIds, List<String> locationNames) {
+        List<String> names = new ArrayList<>(locationIds.length);
+        for (int locationId : locationIds) {
+            names.add(locationNames.get(locationId));
+        }
+        return names;
+    }
+
+    private void printCoolHeader() {
+        String[] header = {
+                "  _____                          _____       _ _ _     ",
+                " |_   _|                        / ____|     | (_) |    ",
+                "   | |  _ __   ___  _   _ _   _| (___  _ __ | |_| |_   ",
+                "   | | | '_ \\ / _ \\| | | | | | |\\___ \\| '_ \\| | | __|  ",
+                "  _| |_| | | | (_) | |_| | |_| |____) | |_) | | | |_   ",
+                " |_____|_| |_|\\___/ \\__, |\\__,_|_____/| .__/|_|_|\\__|  ",
+                "                     __/ |            | |              ",
+                "                    |___/             |_|              "
+        };
+
+        for (String line : header) {
+            getLog().info(builder().add(HEADER, line).build());
+        }
+        getLog().info("");
+    }
+
+    /**
+     * The copies of a class found in the split packages, as location ids and checksums.
+     */
+    private static class DuplicateClass {
+        private int[] locationIds = new int[2];
+        private long[] checksums = new long[2];
+        private int count;
+
+        private void add(int locationId, long checksum) {
+            if (count == locationIds.length) {
+                locationIds = Arrays.copyOf(locationIds, count * 2);
+                checksums = Arrays.copyOf(checksums, count * 2);
+            }
+            locationIds[count] = locationId;
+            checksums[count] = checksum;
+            count++;
+        }
+
+        private boolean differs() {
+            for (int i = 1; i < count; i++) {
+                if (checksums[i] != checksums[0]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
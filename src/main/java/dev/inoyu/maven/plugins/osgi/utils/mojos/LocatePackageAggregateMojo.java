@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.mojos;
+
+import dev.inoyu.maven.plugins.osgi.utils.resolution.DependencyWalker;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.util.List;
+
+/**
+ * The reactor-wide variant of the {@code locate-package} goal. It runs once for the whole build, collects the
+ * dependency graphs of all the modules, scans each distinct dependency jar once and attributes the results to the modules
+ * through the dependency trails, each trail starting with the module it comes from. The graphs are walked by
+ * {@link DependencyWalker}, like for a single module: a module found in the graph of another one is not resolved
+ * as a dependency, its classes being attributed to itself only.
+ */
+@Mojo(name = "locate-package-aggregate", aggregator = true, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
+public class LocatePackageAggregateMojo extends LocatePackageMojo {
+
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+    private List<MavenProject> reactorProjects;
+
+    @Override
+    protected List<MavenProject> getAnalyzedProjects() {
+        return reactorProjects;
+    }
+
+    @Override
+    protected boolean isAggregate() {
+        return true;
+    }
+}
@@ -15,8 +15,15 @@
  */
 package dev.inoyu.maven.plugins.osgi.utils.mojos;
 
-import dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager;
-import org.apache.maven.artifact.handler.ArtifactHandler;
+import dev.inoyu.maven.plugins.osgi.utils.reports.ReportWriter;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.DependencyWalker;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.DependencyWalker.VisitedNode;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.SessionCache;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.NestedJarScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.PackageIndex;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.PackageMatcher;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ParallelScanner;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ZipCentralDirectory;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -26,23 +33,18 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
-import org.apache.maven.project.ProjectBuildingRequest;
-import org.apache.maven.artifact.Artifact;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
-import org.apache.maven.shared.dependency.graph.DependencyNode;
 
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
-import org.eclipse.aether.artifact.DefaultArtifact;
-import org.eclipse.aether.resolution.ArtifactRequest;
-import org.eclipse.aether.resolution.ArtifactResult;
 import org.fusesource.jansi.AnsiConsole;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.jar.JarFile;
-import java.util.jar.JarEntry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.Role.*;
 import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.builder;
@@ -59,9 +61,23 @@ public class LocatePackageMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     private MavenProject project;
 
-    @Parameter(property = "package", required = true)
+    @Parameter(property = "package")
     private String packageName;
 
+    /**
+     * A list of packages to locate in a single pass over the project and its dependencies.
+     */
+    @Parameter(property = "packages")
+    private List<String> packages;
+
+    /**
+     * A file listing the packages to locate, one per line. The file may also be a copy of an OSGi resolution
+     * error, such as the ones logged by Felix or Karaf, in which case every missing osgi.wiring.package
+     * requirement it mentions is located.
+     */
+    @Parameter(property = "packagesFile")
+    private File packagesFile;
+
     @Component
     private DependencyGraphBuilder dependencyGraphBuilder;
 
@@ -74,16 +90,104 @@ public class LocatePackageMojo extends AbstractMojo {
     @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
     private RepositorySystemSession repoSession;
 
+    /**
+     * The number of threads used to scan the dependency jars. Defaults to the number of available processors.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * Only report the closest location of each package. The dependencies are scanned breadth-first, the
+     * closest ones first, and the scan stops as soon as every package has been located, cancelling all the
+     * outstanding work.
+     */
+    @Parameter(property = "firstMatchOnly", defaultValue = "false")
+    private boolean firstMatchOnly;
+
+    /**
+     * Whether the jars nested in the dependency jars, such as the jars embedded in bundles or the bundles of
+     * KAR files, are also searched. They are streamed from the enclosing jar, without being extracted.
+     */
+    @Parameter(property = "scanNestedJars", defaultValue = "true")
+    private boolean scanNestedJars;
+
+    /**
+     * Whether the packages found in each dependency jar are kept in a persistent index, so that later runs only
+     * need to scan new or modified jars. As the index includes the packages of the nested jars, it is only used
+     * when they are searched.
+     */
+    @Parameter(property = "useIndex", defaultValue = "true")
+    private boolean useIndex;
+
+    /**
+     * The location of the persistent package index. It is shared by all projects using the same local repository.
+     */
+    @Parameter(property = "indexFile", defaultValue = "${user.home}/.m2/osgi-utils/package-index.bin")
+    private File indexFile;
+
+    /**
+     * An optional file to which the locations are also written, one record per location found, and one record
+     * per package that could not be found.
+     */
+    @Parameter(property = "reportFile")
+    private File reportFile;
+
+    /**
+     * The format of the report file: "jsonl" or "csv". Defaults to the extension of the report file, JSON Lines
+     * being used for any extension other than ".csv".
+     */
+    @Parameter(property = "reportFormat")
+    private String reportFormat;
+
+    private static final String[] REPORT_COLUMNS = {"package", "found", "location", "artifact", "file", "trail", "packages"};
+
+    private PackageIndex packageIndex;
+
+    private SessionCache sessionCache;
+
+    private static final Pattern WIRING_PACKAGE_REQUIREMENT = Pattern.compile("osgi\\.wiring\\.package=([\\w.$]+)");
+
+    private List<String> packageNames;
+
+    private PackageMatcher packageMatcher;
+
     public void setPackageName(String packageName) {
         this.packageName = packageName;
     }
 
+    public void setPackages(List<String> packages) {
+        this.packages = packages;
+    }
+
+    public void setPackagesFile(File packagesFile) {
+        this.packagesFile = packagesFile;
+    }
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-        getLog().info("Package name: " + packageName);
+        packageNames = getPackageNames();
+        try {
+            // A located package includes its subpackages, the matching patterns being the requested names
+            packageMatcher = PackageMatcher.compileSubtrees(packageNames);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        boolean batchMode = packageNames.size() > 1;
+
+        if (batchMode) {
+            getLog().info("Package names: " + String.join(", ", packageNames));
+        } else {
+            getLog().info("Package name: " + packageNames.get(0));
+        }
         printCoolHeader();
-        getLog().info(builder().add(CONTEXT, "Searching for package location: ").add(DETAIL, packageName).build());
+        if (batchMode) {
+            getLog().info(builder().add(CONTEXT, "Searching for the location of ")
+                    .add(DETAIL, String.valueOf(packageNames.size())).add(CONTEXT, " packages").build());
+        } else {
+            getLog().info(builder().add(CONTEXT, "Searching for package location: ").add(DETAIL, packageNames.get(0)).build());
+        }
 
+        ReportWriter reportWriter = null;
         try {
             if (project == null) {
                 throw new MojoExecutionException("MavenProject is null");
@@ -92,109 +196,328 @@ public class LocatePackageMojo extends AbstractMojo {
                 throw new MojoExecutionException("Project build is null");
             }
 
-            boolean packageFound = false;
+            // Collect every node of the graphs first, so that each distinct jar can be scanned once, in parallel
+            sessionCache = SessionCache.get(repoSession);
+            List<VisitedNode> visitedNodes = new DependencyWalker(session, dependencyGraphBuilder, repoSystem,
+                    repoSession, project.getRemoteProjectRepositories(), getLog()).walk(getAnalyzedProjects());
+            if (firstMatchOnly) {
+                // Breadth-first order, the stable sort keeping the graph order of the nodes at the same depth
+                visitedNodes.sort(Comparator.comparingInt(VisitedNode::getDepth));
+            }
 
-            File classesDir = new File(project.getBuild().getOutputDirectory());
-            packageFound |= locatePackageInDirectory(classesDir, "Project classes", Collections.emptyList());
+            Set<File> jarFiles = new LinkedHashSet<>();
+            for (VisitedNode visitedNode : visitedNodes) {
+                if (visitedNode.getFile() != null && visitedNode.getFile().isFile()) {
+                    jarFiles.add(visitedNode.getFile());
+                }
+            }
+
+            loadPackageIndex();
+
+            ParallelScanner scanner = new ParallelScanner(threads);
+            getLog().debug("Scanning " + jarFiles.size() + " distinct jars using " + scanner.getThreads() + " threads");
+            Map<File, Map<String, List<String>>> matchingPackages;
+            if (firstMatchOnly) {
+                matchingPackages = new HashMap<>();
+                Set<String> remainingPackages = new HashSet<>(packageNames);
+                remainingPackages.removeIf(this::isInProjectClasses);
+                if (!remainingPackages.isEmpty() && !scanner.scanInOrderWhile(jarFiles, this::locatePackagesInJar,
+                        (jarFile, jarMatches) -> {
+                            matchingPackages.put(jarFile, jarMatches);
+                            remainingPackages.removeAll(jarMatches.keySet());
+                            return !remainingPackages.isEmpty();
+                        })) {
+                    getLog().debug("Stopped scanning after " + matchingPackages.size() + " of " + jarFiles.size()
+                            + " jars, all the packages were located");
+                }
+            } else {
+                matchingPackages = scanner.scanAll(jarFiles, this::locatePackagesInJar);
+            }
 
-            ProjectBuildingRequest projectBuildingRequest = session.getProjectBuildingRequest();
-            projectBuildingRequest.setProject(project);
+            savePackageIndex();
 
-            DependencyNode rootNode = dependencyGraphBuilder.buildDependencyGraph(projectBuildingRequest, null);
-            if (rootNode == null) {
-                throw new MojoExecutionException("Failed to build dependency graph: rootNode is null");
+            // Report the results grouped per requested package, every trail reaching a matching jar in graph order
+            List<String> notFoundPackages = new ArrayList<>();
+            if (reportFile != null) {
+                reportWriter = ReportWriter.open(reportFile, reportFormat, REPORT_COLUMNS);
             }
+            for (String requestedPackage : packageNames) {
+                if (batchMode) {
+                    getLog().info(builder().add(HEADER, "─".repeat(78)).build());
+                    getLog().info(builder().add(CONTEXT, "Searching for package location: ").add(DETAIL, requestedPackage).build());
+                }
 
-            packageFound |= locatePackageInDependencyNode(rootNode, new ArrayList<>());
+                boolean packageFound = false;
+                for (MavenProject analyzedProject : getAnalyzedProjects()) {
+                    if (firstMatchOnly && packageFound) {
+                        break;
+                    }
+                    File classesDir = new File(analyzedProject.getBuild().getOutputDirectory());
+                    String projectKey = isAggregate() ? DependencyWalker.getKey(analyzedProject) : null;
+                    String context = isAggregate() ? "Project classes of " + projectKey : "Project classes";
+                    List<String> trail = isAggregate() ? Collections.singletonList(projectKey) : Collections.emptyList();
+                    if (locatePackageInDirectory(classesDir, requestedPackage, context, trail)) {
+                        if (reportWriter != null) {
+                            reportWriter.write(requestedPackage, true, context, projectKey, classesDir.getPath(),
+                                    trail, Collections.singletonList(requestedPackage));
+                        }
+                        packageFound = true;
+                    }
+                }
 
-            if (!packageFound) {
-                printPackageNotFound();
+                for (VisitedNode visitedNode : visitedNodes) {
+                    if (firstMatchOnly && packageFound) {
+                        break;
+                    }
+                    Map<String, List<String>> jarMatches = matchingPackages.get(visitedNode.getFile());
+                    List<String> packages = jarMatches != null ? jarMatches.get(requestedPackage) : null;
+                    if (packages != null && !packages.isEmpty()) {
+                        String artifactKey = visitedNode.getArtifactKey();
+                        List<String> trail = visitedNode.getTrail();
+                        printLocationFound("Dependency: " + artifactKey);
+                        DependencyWalker.printDependencyTrail(getLog(), trail);
+                        getLog().info(""); // Empty line for readability
+                        for (String matchingPackage : packages) {
+                            getLog().debug(builder().add(DEPENDENCY, "  " + matchingPackage).build());
+                        }
+                        if (reportWriter != null) {
+                            reportWriter.write(requestedPackage, true, "Dependency: " + artifactKey,
+                                    artifactKey, visitedNode.getFile().getPath(), trail, packages);
+                        }
+                        packageFound = true;
+                    }
+                }
+
+                if (!packageFound) {
+                    notFoundPackages.add(requestedPackage);
+                    if (reportWriter != null) {
+                        reportWriter.write(requestedPackage, false);
+                    }
+                    if (!batchMode) {
+                        printPackageNotFound(requestedPackage);
+                    }
+                }
+            }
+
+            if (batchMode) {
+                printBatchSummary(notFoundPackages);
             }
         } catch (Exception e) {
             getLog().error("Error while searching for package location", e);
             throw new MojoExecutionException("Error while searching for package location", e);
         } finally {
+            closeReport(reportWriter);
             AnsiConsole.systemUninstall();
         }
     }
 
-    private boolean locatePackageInDependencyNode(DependencyNode node, List<String> dependencyTrail)
-            throws Exception {
-        Artifact artifact = node.getArtifact();
-        getLog().debug("Locating package in dependency node: " + artifact.getGroupId() + ":" + artifact.getArtifactId() + " file=" + artifact.getFile() + " downloadUrl=" + artifact.getDownloadUrl());
-        String artifactKey = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
-
-        List<String> currentTrail = new ArrayList<>(dependencyTrail);
-        currentTrail.add(artifactKey + (artifact.isOptional() ? " (optional)" : ""));
-
-        File file = artifact.getFile();
-        if (file == null) {
-            file = resolveArtifactFile(artifact);
+    private void closeReport(ReportWriter reportWriter) {
+        if (reportWriter != null) {
+            try {
+                reportWriter.close();
+            } catch (IOException e) {
+                getLog().warn("Unable to write report file " + reportFile + ": " + e.getMessage());
+            }
         }
+    }
 
-        boolean result = false;
+    /**
+     * The projects whose classes and dependencies are searched: the current project, or all the projects of the
+     * reactor for the aggregate goal.
+     */
+    protected List<MavenProject> getAnalyzedProjects() {
+        return Collections.singletonList(project);
+    }
 
-        if (file != null && file.isFile()) {
-            result |= locatePackageInJar(file, "Dependency: " + artifactKey, currentTrail);
-        }
+    protected boolean isAggregate() {
+        return false;
+    }
 
-        for (DependencyNode child : node.getChildren()) {
-            result |= locatePackageInDependencyNode(child, currentTrail);
+    private boolean isInProjectClasses(String packageName) {
+        for (MavenProject analyzedProject : getAnalyzedProjects()) {
+            File packageDir = new File(analyzedProject.getBuild().getOutputDirectory(),
+                    packageName.replace('.', File.separatorChar));
+            if (packageDir.isDirectory()) {
+                return true;
+            }
         }
-        return result;
+        return false;
     }
 
-    private boolean locatePackageInDirectory(File directory, String context, List<String> dependencyTrail) {
+    private boolean locatePackageInDirectory(File directory, String packageName, String context, List<String> dependencyTrail) {
         String packagePath = packageName.replace('.', File.separatorChar);
         File packageDir = new File(directory, packagePath);
 
         if (packageDir.exists() && packageDir.isDirectory()) {
             printLocationFound(context);
-            printDependencyTrail(dependencyTrail);
+            DependencyWalker.printDependencyTrail(getLog(), dependencyTrail);
+            getLog().info(""); // Empty line for readability
             listPackageContents(packageDir, "  ");
             return true;
         }
         return false;
     }
 
-    private boolean locatePackageInJar(File jarFile, String context, List<String> dependencyTrail) throws IOException {
-        String packagePath = packageName.replace('.', '/');
-        boolean found = false;
-
-        try (JarFile jar = new JarFile(jarFile)) {
-            Enumeration<JarEntry> entries = jar.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                getLog().debug("Locating package in entry : " + entry.getName());
-                if (entry.getName().startsWith(packagePath + "/") && !entry.isDirectory()) {
-                    if (!found) {
-                        printLocationFound(context);
-                        printDependencyTrail(dependencyTrail);
-                        found = true;
-                    }
-                    getLog().debug(builder().add(DEPENDENCY, "  " + entry.getName()).build());
+    private Map<String, List<String>> locatePackagesInJar(File jarFile) throws IOException {
+        getLog().debug("Scanning jar: " + jarFile);
+        if (packageNames.size() == 1 && (packageIndex == null || packageIndex.getPackages(jarFile) == null)) {
+            // When the jar is not indexed yet, only the entries of the requested package are decoded, the jar only
+            // being fully listed, with its nested jars, and indexed if the package is not among its own entries.
+            // When the matching packages are neither reported nor logged, only the presence of the package matters
+            // and the scan stops at its first entry
+            String requestedPackage = packageNames.get(0);
+            if (reportFile == null && !getLog().isDebugEnabled()) {
+                String jarPackage = ZipCentralDirectory.findPackage(jarFile, requestedPackage);
+                if (jarPackage != null) {
+                    return Collections.singletonMap(requestedPackage, Collections.singletonList(jarPackage));
+                }
+            } else {
+                Set<String> jarPackages = ZipCentralDirectory.listPackages(jarFile, requestedPackage);
+                if (!jarPackages.isEmpty()) {
+                    return Collections.singletonMap(requestedPackage, new ArrayList<>(jarPackages));
                 }
             }
+            if (!scanNestedJars) {
+                return Collections.emptyMap();
+            }
+        }
+
+        Set<String> packages;
+        try {
+            packages = sessionCache.getScanResult(scanNestedJars ? "packages-nested" : "packages", jarFile,
+                    () -> listPackages(jarFile));
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error scanning " + jarFile, e);
+        }
+
+        Map<String, List<String>> matchingPackages = new HashMap<>();
+        for (String jarPackage : packages) {
+            for (String requestedPackage : packageMatcher.getMatchingPatterns(jarPackage)) {
+                matchingPackages.computeIfAbsent(requestedPackage, k -> new ArrayList<>()).add(jarPackage);
+            }
+        }
+        return matchingPackages;
+    }
+
+    private Set<String> listPackages(File jarFile) throws IOException {
+        Set<String> packages = packageIndex != null ? packageIndex.getPackages(jarFile) : null;
+        if (packages == null) {
+            packages = ZipCentralDirectory.listPackages(jarFile);
+            if (scanNestedJars) {
+                packages.addAll(listNestedPackages(jarFile));
+            }
+            if (packageIndex != null) {
+                packageIndex.putPackages(jarFile, packages);
+            }
+        }
+        return packages;
+    }
+
+    private Set<String> listNestedPackages(File jarFile) throws IOException {
+        NestedJarScanner nestedJarScanner = new NestedJarScanner(0);
+        try {
+            Set<String> nestedPackages = nestedJarScanner.listPackages(jarFile);
+            for (String skippedEntry : nestedJarScanner.getSkippedEntries()) {
+                getLog().warn("Unable to scan nested jar " + skippedEntry + " of " + jarFile);
+            }
+            return nestedPackages;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error scanning the nested jars of " + jarFile, e);
         }
-        return found;
     }
 
-    private void printDependencyTrail(List<String> dependencyTrail) {
-        if (!dependencyTrail.isEmpty()) {
-            getLog().info(builder().add(CONTEXT, "Dependency trail:").build());
-            for (int i = 0; i < dependencyTrail.size(); i++) {
-                String dep = dependencyTrail.get(i);
-                ThemeManager.ColorBuilder builder = builder();
-                builder.add(DETAIL, "  ".repeat(i) + "├─ ");
-                if (dep.contains("(optional)")) {
-                    builder.add(DEPENDENCY, dep.replace(" (optional)", "")).add(ATTRIBUTE, " (optional)");
-                } else {
-                    builder.add(DEPENDENCY, dep);
+    private List<String> getPackageNames() throws MojoExecutionException {
+        Set<String> names = new LinkedHashSet<>();
+        if (packageName != null) {
+            addPackageNames(packageName, names);
+        }
+        if (packages != null) {
+            for (String name : packages) {
+                if (name != null) {
+                    addPackageNames(name, names);
                 }
-                getLog().info(builder.build());
             }
         }
-        getLog().info(""); // Empty line for readability
+        if (packagesFile != null) {
+            try {
+                names.addAll(readPackagesFile(packagesFile));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error reading packages file " + packagesFile, e);
+            }
+        }
+        // Subpackages are always located, so a trailing wildcard is not needed
+        Set<String> normalizedNames = new LinkedHashSet<>();
+        for (String name : names) {
+            normalizedNames.add(name.endsWith(".*") ? name.substring(0, name.length() - 2) : name);
+        }
+        names = normalizedNames;
+        if (names.isEmpty()) {
+            throw new MojoExecutionException("No package to locate, please specify the package, packages or packagesFile parameter");
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Adds the package names of a parameter value, which may be a comma-separated list of names.
+     */
+    private static void addPackageNames(String value, Set<String> names) {
+        for (String name : value.split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+    }
+
+    private Set<String> readPackagesFile(File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath());
+
+        // OSGi resolution errors mention the missing packages as osgi.wiring.package requirements
+        Set<String> names = new LinkedHashSet<>();
+        for (String line : lines) {
+            Matcher matcher = WIRING_PACKAGE_REQUIREMENT.matcher(line);
+            while (matcher.find()) {
+                names.add(matcher.group(1));
+            }
+        }
+        if (!names.isEmpty()) {
+            return names;
+        }
+
+        for (String line : lines) {
+            String name = line.trim();
+            if (!name.startsWith("#")) {
+                addPackageNames(name, names);
+            }
+        }
+        return names;
+    }
+
+    private void loadPackageIndex() {
+        if (!useIndex || !scanNestedJars) {
+            return;
+        }
+        packageIndex = new PackageIndex(indexFile);
+        try {
+            packageIndex.load();
+            getLog().debug("Loaded " + packageIndex.size() + " entries from package index " + indexFile);
+        } catch (IOException e) {
+            getLog().warn("Unable to read package index " + indexFile + ", it will be rebuilt: " + e.getMessage());
+        }
+    }
+
+    private void savePackageIndex() {
+        if (packageIndex == null) {
+            return;
+        }
+        try {
+            packageIndex.save();
+        } catch (IOException e) {
+            getLog().warn("Unable to write package index " + indexFile + ": " + e.getMessage());
+        }
     }
 
     private void listPackageContents(File directory, String indent) {
@@ -231,7 +554,7 @@ public class LocatePackageMojo extends AbstractMojo {
         getLog().info("");
     }
 
-    private void printPackageNotFound() {
+    private void printPackageNotFound(String packageName) {
         String[] notFoundArt = {
                 "  _____           _                    _   _       _     ______                     _ ",
                 " |  __ \\         | |                  | \\ | |     | |   |  ____|                   | |",
@@ -253,39 +576,18 @@ public class LocatePackageMojo extends AbstractMojo {
         getLog().info("");
     }
 
-    private File resolveArtifactFile(Artifact artifact) throws Exception {
-        // First, check the local repository
-        File localFile = new File(repoSession.getLocalRepository().getBasedir(),
-                repoSession.getLocalRepositoryManager().getPathForLocalArtifact(new DefaultArtifact(
-                        artifact.getGroupId(),
-                        artifact.getArtifactId(),
-                        artifact.getClassifier(),
-                        getArtifactExtension(artifact),
-                        artifact.getVersion())));
-
-        if (localFile.exists()) {
-            return localFile;
+    private void printBatchSummary(List<String> notFoundPackages) {
+        getLog().info(builder().add(HEADER, "─".repeat(78)).build());
+        getLog().info(builder().add(CONTEXT, "Packages found: ")
+                .add(DETAIL, String.valueOf(packageNames.size() - notFoundPackages.size()))
+                .add(CONTEXT, "/").add(DETAIL, String.valueOf(packageNames.size())).build());
+        if (!notFoundPackages.isEmpty()) {
+            getLog().info(builder().add(ERROR, "Packages not found in the project or its dependencies:").build());
+            for (String notFoundPackage : notFoundPackages) {
+                getLog().info(builder().add(ERROR, "  " + notFoundPackage).build());
+            }
         }
-
-        // If not found locally, resolve from remote repositories
-        DefaultArtifact aetherArtifact = new DefaultArtifact(
-                artifact.getGroupId(),
-                artifact.getArtifactId(),
-                artifact.getClassifier(),
-                getArtifactExtension(artifact),
-                artifact.getVersion());
-
-        ArtifactRequest request = new ArtifactRequest();
-        request.setArtifact(aetherArtifact);
-        request.setRepositories(project.getRemoteProjectRepositories());
-
-        ArtifactResult result = repoSystem.resolveArtifact(repoSession, request);
-        return result.getArtifact().getFile();
-    }
-
-    private String getArtifactExtension(Artifact artifact) {
-        ArtifactHandler handler = artifact.getArtifactHandler();
-        return handler.getExtension();
+        getLog().info("");
     }
 
 }
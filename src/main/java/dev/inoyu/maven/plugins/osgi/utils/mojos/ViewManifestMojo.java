@@ -15,6 +15,12 @@
  */
 package dev.inoyu.maven.plugins.osgi.utils.mojos;
 
+import dev.inoyu.maven.plugins.osgi.utils.reports.ReportWriter;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.JarCollector;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ManifestReader;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.PackageMatcher;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ParallelScanner;
+import dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.ColorBuilder;
 import org.apache.felix.utils.manifest.Attribute;
 import org.apache.felix.utils.manifest.Clause;
 import org.apache.felix.utils.manifest.Directive;
@@ -28,12 +34,14 @@ import org.apache.maven.project.MavenProject;
 
 import org.fusesource.jansi.AnsiConsole;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.Attributes;
-import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.regex.Pattern;
 
 import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.Role.*;
 import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.builder;
@@ -44,6 +52,10 @@ import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.builder;
  *
  * When used within a project, it will analyze the project's main artifact.
  * When used independently, it can analyze specified JAR files.
+ * Only the manifest entry of each JAR is read, located through the central directory, and the manifests of
+ * several JARs are read in parallel while being displayed in the order the JARs were given.
+ * Whole distributions can be swept by giving directories, glob patterns or a subtree of the local Maven
+ * repository instead of JAR files, optionally only displaying the bundles exporting or importing some packages.
  */
 @Mojo(name = "view-manifest", requiresProject = false)
 public class ViewManifestMojo extends AbstractMojo {
@@ -51,9 +63,87 @@ public class ViewManifestMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project}", readonly = true)
     private MavenProject project;
 
+    /**
+     * The JAR files to analyze. Directories designate all the JARs found below them, and glob patterns, such as
+     * "system/**&#47;*.jar", the files matching them.
+     */
     @Parameter(property = "jars")
     private List<String> jars;
 
+    /**
+     * A subtree of the local Maven repository whose JARs are analyzed, given as a path such as "org/apache/karaf"
+     * or as a group id such as "org.apache.karaf".
+     */
+    @Parameter(property = "repositoryPath")
+    private String repositoryPath;
+
+    @Parameter(defaultValue = "${settings.localRepository}", readonly = true)
+    private File localRepository;
+
+    /**
+     * Only display the bundles whose Export-Package header exports a package matching one of these patterns,
+     * following the BND conventions: a package name only matches that package, a name followed by ".*" also
+     * matches its subpackages, and "*" matches every package.
+     */
+    @Parameter(property = "exportsPackage")
+    private List<String> exportsPackage;
+
+    /**
+     * Only display the bundles whose Import-Package header imports a package matching one of these patterns.
+     */
+    @Parameter(property = "importsPackage")
+    private List<String> importsPackage;
+
+    /**
+     * An optional file to which the manifest headers are also written, one record per header.
+     */
+    @Parameter(property = "reportFile")
+    private File reportFile;
+
+    /**
+     * The format of the report file: "jsonl" or "csv". Defaults to the extension of the report file, JSON Lines
+     * being used for any extension other than ".csv".
+     */
+    @Parameter(property = "reportFormat")
+    private String reportFormat;
+
+    /**
+     * The number of threads used to read the manifests. Defaults to the number of available processors.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    private static final String[] REPORT_COLUMNS = {"file", "section", "header", "value"};
+
+    /**
+     * The headers made of clauses, displayed one clause per line.
+     */
+    private static final Set<String> CLAUSE_HEADERS = new HashSet<>(Arrays.asList("Bundle-ClassPath",
+            "Embedded-Artifacts", "Export-Package", "Import-Package", "Import-Service", "Require-Capability",
+            "Provide-Capability", "Fragment-Host", "DynamicImport-Package", "Bundle-NativeCode", "Service-Component",
+            "Bundle-RequiredExecutionEnvironment", "Component-Properties"));
+
+    /**
+     * The characters that require a directive or attribute value to be quoted: separators and whitespace.
+     */
+    private static final boolean[] QUOTED_CHARACTERS = new boolean[128];
+
+    static {
+        for (char c : ",;= \t\n\u000B\f\r".toCharArray()) {
+            QUOTED_CHARACTERS[c] = true;
+        }
+    }
+
+    private ReportWriter reportWriter;
+    private ColorBuilder formatter;
+    private String attributeSeparator;
+    private String manifestSeparator;
+    private PackageMatcher exportsMatcher;
+    private PackageMatcher importsMatcher;
+    private int displayedManifests;
+    private boolean sweep;
+    private final Map<String, String> unreadableJars = new ConcurrentHashMap<>();
+
     public void setJars(List<String> jars) {
         this.jars = jars;
     }
@@ -64,8 +154,9 @@ public class ViewManifestMojo extends AbstractMojo {
 
         List<String> jarPaths = new ArrayList<>();
 
-        if (jars != null && !jars.isEmpty()) {
-            jarPaths.addAll(jars);
+        sweep = (jars != null && !jars.isEmpty()) || repositoryPath != null;
+        if (sweep) {
+            jarPaths.addAll(collectJars());
         } else if (project != null && project.getArtifact() != null) {
             String extension = project.getPackaging();
             if ("bundle".equals(extension) || "maven-plugin".equals(extension)) {
@@ -82,48 +173,174 @@ public class ViewManifestMojo extends AbstractMojo {
             throw new MojoExecutionException("No JAR files specified and not running in a project context.");
         }
 
-        for (String jarPath : jarPaths) {
+        try {
+            exportsMatcher = exportsPackage != null && !exportsPackage.isEmpty() ? PackageMatcher.compile(exportsPackage) : null;
+            importsMatcher = importsPackage != null && !importsPackage.isEmpty() ? PackageMatcher.compile(importsPackage) : null;
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+
+        if (reportFile != null) {
             try {
-                Manifest manifest = readManifest(jarPath);
+                reportWriter = ReportWriter.open(reportFile, reportFormat, REPORT_COLUMNS);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error opening report file " + reportFile, e);
+            }
+        }
 
-                getLog().info(builder().add(CONTEXT, "Analyzing manifest of: ").add(DETAIL, jarPath).build());
-                getLog().info(builder().add(DIRECTIVE, "=".repeat(80)).build());
+        initFormatting();
 
-                processAttributes(manifest.getMainAttributes());
-                for (Map.Entry<String, Attributes> namedAttributes : manifest.getEntries().entrySet()) {
-                    processAttributes(namedAttributes.getValue());
-                }
+        try {
+            ParallelScanner scanner = new ParallelScanner(threads);
+            getLog().debug("Reading " + jarPaths.size() + " manifests using " + scanner.getThreads() + " threads");
+            scanner.scanInOrder(new LinkedHashSet<>(jarPaths), this::readManifest, this::printManifest);
+            if (isFiltered()) {
+                getLog().info(builder().add(CONTEXT, "Bundles matching the filters: ")
+                        .add(DETAIL, displayedManifests + " of " + jarPaths.size() + " JARs").build());
+            }
+            if (!unreadableJars.isEmpty()) {
+                getLog().warn("Unreadable JARs skipped: " + unreadableJars.size() + " of " + jarPaths.size());
+            }
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoExecutionException("Error analyzing manifests", e);
+        } finally {
+            closeReport();
+            AnsiConsole.systemUninstall();
+        }
+    }
 
-                getLog().info(builder().add(DIRECTIVE, "=".repeat(80)).build());
-                getLog().info("");
+    private void closeReport() {
+        if (reportWriter != null) {
+            try {
+                reportWriter.close();
             } catch (IOException e) {
-                throw new MojoExecutionException("Error reading MANIFEST.MF from " + jarPath, e);
+                getLog().warn("Unable to write report file " + reportFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private List<String> collectJars() throws MojoExecutionException {
+        JarCollector collector = new JarCollector();
+        List<String> locations = new ArrayList<>();
+        if (jars != null) {
+            locations.addAll(jars);
+        }
+        if (repositoryPath != null) {
+            String subtree = repositoryPath.contains("/") ? repositoryPath : repositoryPath.replace('.', '/');
+            locations.add(new File(localRepository, subtree).getPath());
+        }
+        for (String location : locations) {
+            try {
+                collector.add(location.trim());
+            } catch (NoSuchFileException e) {
+                throw new MojoExecutionException("No JAR file, directory or pattern matches " + location);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error collecting the JAR files of " + location, e);
+            }
+        }
+        for (String error : collector.getErrors()) {
+            getLog().warn("Unable to read " + error);
+        }
+        List<String> jarPaths = new ArrayList<>();
+        for (Path jar : collector.getJars()) {
+            jarPaths.add(jar.toString());
+        }
+        getLog().debug("Collected " + jarPaths.size() + " JAR files from " + locations);
+        return jarPaths;
+    }
+
+    private boolean isFiltered() {
+        return exportsMatcher != null || importsMatcher != null;
+    }
+
+    /**
+     * Returns true if the manifest passes the export and import filters.
+     */
+    private boolean isSelected(Manifest manifest) {
+        Attributes mainAttributes = manifest.getMainAttributes();
+        return (exportsMatcher == null || containsMatchingClause(mainAttributes.getValue("Export-Package"), exportsMatcher))
+                && (importsMatcher == null || containsMatchingClause(mainAttributes.getValue("Import-Package"), importsMatcher));
+    }
+
+    private static boolean containsMatchingClause(String header, PackageMatcher matcher) {
+        if (header == null) {
+            return false;
+        }
+        for (Clause clause : Parser.parseHeader(header)) {
+            if (matcher.matches(clause.getName())) {
+                return true;
             }
         }
+        return false;
+    }
 
-        AnsiConsole.systemUninstall();
+    /**
+     * Reads the manifest of a JAR, or returns null if it has none or does not pass the filters. When sweeping
+     * directories or patterns, an unreadable or corrupted JAR is only recorded, to be reported in order with the
+     * other JARs, instead of aborting the whole run.
+     */
+    private Manifest readManifest(String jarPath) throws MojoExecutionException {
+        try {
+            Manifest manifest = ManifestReader.read(new File(jarPath));
+            // The filters are applied by the worker threads, the manifests filtered out being dropped right away
+            return manifest != null && isFiltered() && !isSelected(manifest) ? null : manifest;
+        } catch (IOException | RuntimeException e) {
+            if (!sweep) {
+                throw new MojoExecutionException("Error reading MANIFEST.MF from " + jarPath, e);
+            }
+            unreadableJars.put(jarPath, String.valueOf(e.getMessage()));
+            return null;
+        }
     }
 
-    private Manifest readManifest(String jarPath) throws IOException {
-        try (JarFile jarFile = new JarFile(jarPath)) {
-            return jarFile.getManifest();
+    private void printManifest(String jarPath, Manifest manifest) throws IOException {
+        String readError = unreadableJars.get(jarPath);
+        if (readError != null) {
+            getLog().warn("Unable to read the manifest of " + jarPath + ", skipping it: " + readError);
+            return;
+        }
+        if (manifest == null) {
+            if (!isFiltered()) {
+                getLog().info(builder().add(CONTEXT, "Analyzing manifest of: ").add(DETAIL, jarPath).build());
+                getLog().warn("No MANIFEST.MF found in " + jarPath);
+                getLog().info("");
+            }
+            return;
+        }
+        displayedManifests++;
+        getLog().info(builder().add(CONTEXT, "Analyzing manifest of: ").add(DETAIL, jarPath).build());
+        getLog().info(manifestSeparator);
+
+        processAttributes(jarPath, null, manifest.getMainAttributes());
+        for (Map.Entry<String, Attributes> namedAttributes : manifest.getEntries().entrySet()) {
+            processAttributes(jarPath, namedAttributes.getKey(), namedAttributes.getValue());
+        }
+
+        getLog().info(manifestSeparator);
+        getLog().info("");
+        if (reportWriter != null) {
+            reportWriter.flush();
         }
     }
 
-    private void processAttributes(Attributes attributes) {
+    private void processAttributes(String jarPath, String section, Attributes attributes) throws IOException {
 
-        for (Object attributeKey : attributes.keySet()) {
-            String attributeName = attributeKey.toString();
-            String attributeValue = attributes.getValue(attributeName);
-            if (Arrays.asList("Bundle-ClassPath", "Embedded-Artifacts", "Export-Package",
-                    "Import-Package", "Import-Service", "Require-Capability", "Provide-Capability",
-                    "Fragment-Host", "DynamicImport-Package", "Bundle-NativeCode", "Service-Component",
-                    "Bundle-RequiredExecutionEnvironment", "Component-Properties").contains(attributeName)) {
+        for (Map.Entry<Object, Object> attribute : attributes.entrySet()) {
+            String attributeName = attribute.getKey().toString();
+            String attributeValue = (String) attribute.getValue();
+            if (reportWriter != null) {
+                reportWriter.write(jarPath, section, attributeName, attributeValue);
+            }
+            if (CLAUSE_HEADERS.contains(attributeName)) {
                 getLog().info(formatHeader(attributeName, attributeValue));
             } else {
-                getLog().info(builder().add(CONTEXT, attributeName + ": ").add(DETAIL, attributeValue).build());
+                getLog().info(formatter.clear()
+                        .begin(CONTEXT).append(attributeName).append(": ").end()
+                        .begin(DETAIL).append(attributeValue).end().build());
             }
-            getLog().info(builder().add(HEADER, "─".repeat(78)).build());
+            getLog().info(attributeSeparator);
         }
     }
 
@@ -148,43 +365,77 @@ public class ViewManifestMojo extends AbstractMojo {
         return new AbstractMap.SimpleEntry<>(path, params);
     }
 
-    private String formatHeader(String key, String value) {
-        StringBuilder formatted = new StringBuilder(builder().add(DEPENDENCY, key + ":").build() + "\n");
+    /**
+     * Creates the reused formatting buffer and the separator lines, once per execution.
+     */
+    void initFormatting() {
+        formatter = builder(new StringBuilder(8192));
+        attributeSeparator = builder().add(HEADER, "─".repeat(78)).build();
+        manifestSeparator = builder().add(DIRECTIVE, "=".repeat(80)).build();
+    }
+
+    /**
+     * Formats a header made of clauses, one clause per line. The header is formatted into the reused buffer of
+     * the formatter, so that a header of thousands of clauses only creates the resulting string.
+     * Package-private for ViewManifestFormatBenchmark, under src/jmh.
+     */
+    String formatHeader(String key, String value) {
+        formatter.clear().begin(DEPENDENCY).append(key).append(':').end().append('\n');
 
-        // Parse the Import-Package header
         Clause[] clauses = Parser.parseHeader(value);
 
         for (int i = 0; i < clauses.length; i++) {
             Clause clause = clauses[i];
-            formatted.append(builder().add(CLAUSE, "  " + clause.getName()).build());
+            formatter.begin(CLAUSE).append("  ").append(clause.getName()).end();
             for (Directive directive : clause.getDirectives()) {
-                String quotedValue = applyQuotingIfNeeded(directive.getValue());
-                formatted.append(builder().add(DIRECTIVE, ";" + directive.getName() + ":=" + quotedValue).build());
+                formatter.begin(DIRECTIVE).append(';').append(directive.getName()).append(":=");
+                appendQuotedIfNeeded(directive.getValue());
+                formatter.end();
             }
             for (Attribute attribute : clause.getAttributes()) {
-                String quotedValue = applyQuotingIfNeeded(attribute.getValue());
-                formatted.append(builder().add(ATTRIBUTE, ";" + attribute.getName() + "=" + quotedValue).build());
+                formatter.begin(ATTRIBUTE).append(';').append(attribute.getName()).append('=');
+                appendQuotedIfNeeded(attribute.getValue());
+                formatter.end();
             }
             // Add a comma if this is not the last clause
             if (i < clauses.length - 1) {
-                formatted.append(",\n");
+                formatter.append(",\n");
             }
         }
 
-        return formatted.toString();
+        return formatter.build();
     }
 
-    private String applyQuotingIfNeeded(String value) {
-        // Regex pattern for detecting special characters or whitespace
-        Pattern specialCharacters = Pattern.compile("[,;=]|\\s");
-
-        // Quote the value if it contains special characters, whitespace, or is empty
-        if (value.isEmpty() || specialCharacters.matcher(value).find()) {
-            return "\"" + value.replace("\"", "\\\"") + "\""; // Escape inner quotes
+    /**
+     * Appends a value, quoted if it is empty or contains separators or whitespace, with its inner quotes escaped.
+     */
+    private void appendQuotedIfNeeded(String value) {
+        if (!needsQuoting(value)) {
+            formatter.append(value);
+            return;
+        }
+        formatter.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                formatter.append('\\');
+            }
+            formatter.append(c);
         }
+        formatter.append('"');
+    }
 
-        // Return the unquoted value if quoting is unnecessary
-        return value;
+    private static boolean needsQuoting(String value) {
+        if (value.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < QUOTED_CHARACTERS.length && QUOTED_CHARACTERS[c]) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void printCoolHeader() {
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.reports;
+
+import java.util.*;
+
+/**
+ * The usages of the searched package found in a single artifact (or in the project classes): the classes
+ * using it, with the matching packages each of them refers to, and all the dependency trails reaching
+ * the artifact.
+ */
+public class ArtifactUsages {
+
+    private final String context;
+    private final String artifactKey;
+    private final List<List<String>> trails;
+    private final Map<String, List<String>> usages = new LinkedHashMap<>();
+    private int usageCount;
+
+    /**
+     * @param context     a human readable description of where the usages were found
+     * @param artifactKey the coordinates of the artifact, or null for the project classes
+     * @param trails      the distinct dependency trails reaching the artifact, empty for the project classes
+     */
+    public ArtifactUsages(String context, String artifactKey, List<List<String>> trails) {
+        this.context = context;
+        this.artifactKey = artifactKey;
+        this.trails = trails;
+    }
+
+    public void addUsage(String className, String referredPackage) {
+        usages.computeIfAbsent(className, k -> new ArrayList<>()).add(referredPackage);
+        usageCount++;
+    }
+
+    public String getContext() {
+        return context;
+    }
+
+    public String getArtifactKey() {
+        return artifactKey;
+    }
+
+    public List<List<String>> getTrails() {
+        return trails;
+    }
+
+    /**
+     * The referred packages matching the searched package, for each class using it.
+     */
+    public Map<String, List<String>> getUsages() {
+        return usages;
+    }
+
+    public int getClassCount() {
+        return usages.size();
+    }
+
+    public int getUsageCount() {
+        return usageCount;
+    }
+
+    public boolean isEmpty() {
+        return usages.isEmpty();
+    }
+}
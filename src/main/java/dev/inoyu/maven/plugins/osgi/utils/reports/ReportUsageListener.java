@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.reports;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the usages found by find-package-usages to a report, one record per class using the package.
+ */
+public class ReportUsageListener implements UsageListener {
+
+    public static final String[] COLUMNS = {"package", "location", "artifact", "class", "referredPackages", "trails"};
+
+    private final ReportWriter reportWriter;
+    private final String packageName;
+
+    public ReportUsageListener(ReportWriter reportWriter, String packageName) {
+        this.reportWriter = reportWriter;
+        this.packageName = packageName;
+    }
+
+    @Override
+    public void artifactUsages(ArtifactUsages usages) throws Exception {
+        List<String> trails = new ArrayList<>();
+        for (List<String> trail : usages.getTrails()) {
+            trails.add(String.join(" > ", trail));
+        }
+        for (Map.Entry<String, List<String>> classUsages : usages.getUsages().entrySet()) {
+            reportWriter.write(packageName, usages.getContext(), usages.getArtifactKey(), classUsages.getKey(),
+                    classUsages.getValue(), trails);
+        }
+        reportWriter.flush();
+    }
+
+    @Override
+    public void finished() throws Exception {
+        reportWriter.flush();
+    }
+}
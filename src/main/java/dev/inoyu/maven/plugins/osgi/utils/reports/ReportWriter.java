@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.reports;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Writes a machine-readable report, one record at a time, so that goals can stream their results to a file
+ * while they are produced, whatever their number, instead of keeping them in memory.
+ * Every record has the same columns, given when the report is opened. Values may be strings, numbers,
+ * booleans, null or collections of values.
+ */
+public abstract class ReportWriter implements Closeable, Flushable {
+
+    public static final String FORMAT_JSONL = "jsonl";
+    public static final String FORMAT_CSV = "csv";
+
+    protected final Writer writer;
+    protected final String[] columns;
+
+    protected ReportWriter(Writer writer, String[] columns) {
+        this.writer = writer;
+        this.columns = columns;
+    }
+
+    /**
+     * Opens a report file.
+     *
+     * @param format {@link #FORMAT_JSONL} or {@link #FORMAT_CSV}, or null to use the extension of the file,
+     *               JSON Lines being the default
+     */
+    public static ReportWriter open(File file, String format, String... columns) throws IOException {
+        if (format == null || format.isEmpty()) {
+            format = file.getName().toLowerCase(Locale.ROOT).endsWith(".csv") ? FORMAT_CSV : FORMAT_JSONL;
+        }
+        if (!FORMAT_JSONL.equals(format) && !FORMAT_CSV.equals(format)) {
+            throw new IOException("Unknown report format '" + format + "', expected '" + FORMAT_JSONL + "' or '"
+                    + FORMAT_CSV + "'");
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        return FORMAT_CSV.equals(format) ? new CsvReportWriter(writer, columns) : new JsonLinesReportWriter(writer, columns);
+    }
+
+    /**
+     * Writes a record, the values being given in the order of the columns.
+     */
+    public abstract void write(Object... values) throws IOException;
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * One JSON object per line, collections being written as arrays.
+     */
+    private static class JsonLinesReportWriter extends ReportWriter {
+
+        private JsonLinesReportWriter(Writer writer, String[] columns) {
+            super(writer, columns);
+        }
+
+        @Override
+        public void write(Object... values) throws IOException {
+            writer.write('{');
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeString(columns[i]);
+                writer.write(':');
+                writeValue(i < values.length ? values[i] : null);
+            }
+            writer.write("}\n");
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                writer.write("null");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                writer.write(value.toString());
+            } else if (value instanceof Collection) {
+                writer.write('[');
+                Iterator<?> iterator = ((Collection<?>) value).iterator();
+                while (iterator.hasNext()) {
+                    writeValue(iterator.next());
+                    if (iterator.hasNext()) {
+                        writer.write(',');
+                    }
+                }
+                writer.write(']');
+            } else {
+                writeString(value.toString());
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        writer.write("\\\"");
+                        break;
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    case '\t':
+                        writer.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            writer.write(c);
+                        }
+                }
+            }
+            writer.write('"');
+        }
+    }
+
+    /**
+     * Comma separated values with a header line, collections being joined with " | ".
+     */
+    private static class CsvReportWriter extends ReportWriter {
+
+        private CsvReportWriter(Writer writer, String[] columns) throws IOException {
+            super(writer, columns);
+            writeLine(columns);
+        }
+
+        @Override
+        public void write(Object... values) throws IOException {
+            Object[] line = new Object[columns.length];
+            System.arraycopy(values, 0, line, 0, Math.min(values.length, columns.length));
+            writeLine(line);
+        }
+
+        private void writeLine(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(toText(values[i]));
+            }
+            writer.write("\r\n");
+        }
+
+        private static String toText(Object value) {
+            if (value == null) {
+                return "";
+            }
+            if (value instanceof Collection) {
+                StringBuilder text = new StringBuilder();
+                for (Object element : (Collection<?>) value) {
+                    if (text.length() > 0) {
+                        text.append(" | ");
+                    }
+                    text.append(toText(element));
+                }
+                return text.toString();
+            }
+            return value.toString();
+        }
+
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.reports;
+
+/**
+ * Receives the usages found by find-package-usages as soon as each artifact has been analyzed, in
+ * dependency graph order, so that results can be reported while the analysis is still running.
+ */
+public interface UsageListener {
+
+    void artifactUsages(ArtifactUsages usages) throws Exception;
+
+    /**
+     * Called once all the artifacts have been analyzed.
+     */
+    void finished() throws Exception;
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.resolution;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the files of the artifacts of a dependency graph.
+ * All the artifacts are handled in one go: the ones already known in this Maven session or present in
+ * the local repository are returned directly, and all the others are resolved in a single batched request,
+ * instead of one blocking request per node while the graph is being walked.
+ * Resolved files are kept in the repository session, so they are shared by all the goals and modules
+ * of the build.
+ */
+public class ArtifactFileResolver {
+
+    private static final String SESSION_CACHE_KEY = ArtifactFileResolver.class.getName() + ".files";
+
+    private final RepositorySystem repoSystem;
+    private final RepositorySystemSession repoSession;
+    private final List<RemoteRepository> remoteRepositories;
+    private final Log log;
+
+    public ArtifactFileResolver(RepositorySystem repoSystem, RepositorySystemSession repoSession,
+                                List<RemoteRepository> remoteRepositories, Log log) {
+        this.repoSystem = repoSystem;
+        this.repoSession = repoSession;
+        this.remoteRepositories = remoteRepositories;
+        this.log = log;
+    }
+
+    /**
+     * Returns the file of each of the given artifacts, keyed by {@link #getKey(Artifact)}. Artifacts that could
+     * not be resolved are logged and left out of the result.
+     */
+    public Map<String, File> resolve(Collection<Artifact> artifacts) {
+        Map<String, File> sessionFiles = getSessionFiles();
+        Map<String, File> files = new HashMap<>();
+        Map<String, ArtifactRequest> requests = new LinkedHashMap<>();
+
+        for (Artifact artifact : artifacts) {
+            String key = getKey(artifact);
+            if (files.containsKey(key) || requests.containsKey(key)) {
+                continue;
+            }
+            File file = artifact.getFile();
+            if (file == null) {
+                file = sessionFiles.get(key);
+            }
+            if (file == null) {
+                DefaultArtifact aetherArtifact = toAetherArtifact(artifact);
+                File localFile = new File(repoSession.getLocalRepository().getBasedir(),
+                        repoSession.getLocalRepositoryManager().getPathForLocalArtifact(aetherArtifact));
+                if (localFile.exists()) {
+                    file = localFile;
+                    sessionFiles.put(key, file);
+                }
+            }
+            if (file != null) {
+                files.put(key, file);
+            } else {
+                requests.put(key, new ArtifactRequest(toAetherArtifact(artifact), remoteRepositories, null));
+            }
+        }
+
+        if (!requests.isEmpty()) {
+            log.debug("Resolving " + requests.size() + " artifacts from remote repositories");
+            List<ArtifactResult> results;
+            try {
+                results = repoSystem.resolveArtifacts(repoSession, requests.values());
+            } catch (ArtifactResolutionException e) {
+                // The results of the artifacts that could be resolved are still available
+                results = e.getResults();
+            }
+            Iterator<String> keys = requests.keySet().iterator();
+            for (ArtifactResult result : results) {
+                String key = keys.next();
+                if (result.isResolved()) {
+                    File file = result.getArtifact().getFile();
+                    files.put(key, file);
+                    sessionFiles.put(key, file);
+                } else {
+                    log.warn("Unable to resolve " + key + ", it will be skipped: " + result.getExceptions());
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * The key of an artifact in the resolved files: its full coordinates, as the same group, artifact and version
+     * may have several classifiers or types.
+     */
+    public static String getKey(Artifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + getExtension(artifact) + ":"
+                + (artifact.getClassifier() != null ? artifact.getClassifier() : "") + ":" + artifact.getVersion();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, File> getSessionFiles() {
+        SessionData data = repoSession.getData();
+        Map<String, File> files = (Map<String, File>) data.get(SESSION_CACHE_KEY);
+        while (files == null) {
+            data.set(SESSION_CACHE_KEY, null, new ConcurrentHashMap<String, File>());
+            files = (Map<String, File>) data.get(SESSION_CACHE_KEY);
+        }
+        return files;
+    }
+
+    private static DefaultArtifact toAetherArtifact(Artifact artifact) {
+        return new DefaultArtifact(
+                artifact.getGroupId(),
+                artifact.getArtifactId(),
+                artifact.getClassifier(),
+                getExtension(artifact),
+                artifact.getVersion());
+    }
+
+    private static String getExtension(Artifact artifact) {
+        return artifact.getArtifactHandler().getExtension();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.resolution;
+
+import dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.DefaultProjectBuildingRequest;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+
+import java.io.File;
+import java.util.*;
+
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.Role.*;
+import static dev.inoyu.maven.plugins.osgi.utils.themes.ThemeManager.builder;
+
+/**
+ * Walks the dependency graphs of a set of projects, shared by the goals searching the dependencies.
+ * The graphs are taken from the {@link SessionCache}, every node is collected first, in graph order, and the files
+ * of all the artifacts are then resolved in one go by the {@link ArtifactFileResolver}, so that the goals can
+ * scan each distinct file once, in parallel.
+ * The projects themselves, at the root of their graphs, are not resolved, as their classes are analyzed directly.
+ * Neither are the other walked projects when they are found in a graph, which is the case when a whole reactor is
+ * walked: the results of their classes are attributed to them, each trail starting with the project it comes from.
+ */
+public class DependencyWalker {
+
+    private final MavenSession session;
+    private final DependencyGraphBuilder dependencyGraphBuilder;
+    private final RepositorySystem repoSystem;
+    private final RepositorySystemSession repoSession;
+    private final List<RemoteRepository> remoteRepositories;
+    private final Log log;
+
+    public DependencyWalker(MavenSession session, DependencyGraphBuilder dependencyGraphBuilder,
+                            RepositorySystem repoSystem, RepositorySystemSession repoSession,
+                            List<RemoteRepository> remoteRepositories, Log log) {
+        this.session = session;
+        this.dependencyGraphBuilder = dependencyGraphBuilder;
+        this.repoSystem = repoSystem;
+        this.repoSession = repoSession;
+        this.remoteRepositories = remoteRepositories;
+        this.log = log;
+    }
+
+    /**
+     * Returns the nodes of the dependency graphs of the given projects, depth-first and in the order of the
+     * projects, with the files of their artifacts resolved.
+     */
+    public List<VisitedNode> walk(List<MavenProject> projects) throws Exception {
+        SessionCache sessionCache = SessionCache.get(repoSession);
+        Set<String> projectKeys = new HashSet<>();
+        List<VisitedNode> visitedNodes = new ArrayList<>();
+        for (MavenProject project : projects) {
+            projectKeys.add(getKey(project));
+            ProjectBuildingRequest projectBuildingRequest =
+                    new DefaultProjectBuildingRequest(session.getProjectBuildingRequest());
+            projectBuildingRequest.setProject(project);
+
+            DependencyNode rootNode = sessionCache.getDependencyGraph(project,
+                    () -> dependencyGraphBuilder.buildDependencyGraph(projectBuildingRequest, null));
+            if (rootNode == null) {
+                throw new IllegalStateException("Failed to build the dependency graph of " + project.getId());
+            }
+            collectDependencyNodes(rootNode, null, visitedNodes);
+        }
+        resolveFiles(visitedNodes, projectKeys);
+        return visitedNodes;
+    }
+
+    /**
+     * Resolves the files of all the visited nodes at once, instead of one by one while walking the graph.
+     */
+    private void resolveFiles(List<VisitedNode> visitedNodes, Set<String> projectKeys) {
+        List<Artifact> artifacts = new ArrayList<>();
+        for (VisitedNode visitedNode : visitedNodes) {
+            if (!projectKeys.contains(visitedNode.getArtifactKey())) {
+                artifacts.add(visitedNode.artifact);
+            }
+        }
+        Map<String, File> files = new ArtifactFileResolver(repoSystem, repoSession, remoteRepositories, log)
+                .resolve(artifacts);
+        for (VisitedNode visitedNode : visitedNodes) {
+            if (!projectKeys.contains(visitedNode.getArtifactKey())) {
+                visitedNode.file = files.get(ArtifactFileResolver.getKey(visitedNode.artifact));
+            }
+        }
+    }
+
+    private void collectDependencyNodes(DependencyNode node, VisitedNode parent, List<VisitedNode> visitedNodes) {
+        Artifact artifact = node.getArtifact();
+        if (log.isDebugEnabled()) {
+            log.debug("Visiting dependency node: " + artifact.getGroupId() + ":" + artifact.getArtifactId()
+                    + " file=" + artifact.getFile());
+        }
+        VisitedNode visitedNode = new VisitedNode(parent, artifact);
+        visitedNodes.add(visitedNode);
+
+        for (DependencyNode child : node.getChildren()) {
+            collectDependencyNodes(child, visitedNode, visitedNodes);
+        }
+    }
+
+    public static String getKey(MavenProject mavenProject) {
+        return mavenProject.getGroupId() + ":" + mavenProject.getArtifactId() + ":" + mavenProject.getVersion();
+    }
+
+    /**
+     * Logs a dependency trail, one artifact per line, indented by depth, the optional ones being marked.
+     */
+    public static void printDependencyTrail(Log log, List<String> dependencyTrail) {
+        if (dependencyTrail.isEmpty()) {
+            return;
+        }
+        log.info(builder().add(CONTEXT, "Dependency trail:").build());
+        for (int i = 0; i < dependencyTrail.size(); i++) {
+            String dep = dependencyTrail.get(i);
+            ThemeManager.ColorBuilder builder = builder();
+            builder.add(CONTEXT, "  ".repeat(i) + "├─ ");
+            if (dep.contains("(optional)")) {
+                builder.add(DEPENDENCY, dep.replace(" (optional)", "")).add(ATTRIBUTE, " (optional)");
+            } else {
+                builder.add(DEPENDENCY, dep);
+            }
+            log.info(builder.build());
+        }
+    }
+
+    /**
+     * A node of the dependency graph, in the order it was visited, with the file of its artifact once resolved.
+     * The trail reaching the node is only kept as a reference to its parent node, the artifact key and the trail
+     * being turned into strings when a match is actually reported.
+     */
+    public static class VisitedNode {
+        private final VisitedNode parent;
+        private final Artifact artifact;
+        private final int depth;
+        private File file;
+
+        private VisitedNode(VisitedNode parent, Artifact artifact) {
+            this.parent = parent;
+            this.artifact = artifact;
+            this.depth = parent == null ? 1 : parent.depth + 1;
+        }
+
+        public Artifact getArtifact() {
+            return artifact;
+        }
+
+        /**
+         * The depth of the node, the root of the graph being at depth 1.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * The file of the artifact, or null if it could not be resolved or if the node is one of the walked
+         * projects.
+         */
+        public File getFile() {
+            return file;
+        }
+
+        public String getArtifactKey() {
+            return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+        }
+
+        /**
+         * The keys of the artifacts from the root of the graph to this node, the optional ones being marked.
+         */
+        public List<String> getTrail() {
+            String[] trail = new String[depth];
+            for (VisitedNode node = this; node != null; node = node.parent) {
+                trail[node.depth - 1] = node.getArtifactKey() + (node.artifact.isOptional() ? " (optional)" : "");
+            }
+            return Arrays.asList(trail);
+        }
+    }
+}
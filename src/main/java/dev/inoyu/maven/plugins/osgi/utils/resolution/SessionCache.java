@@ -0,0 +1,128 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.resolution;
+
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+import java.io.File;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the dependency graphs of the projects and the scan results of the artifact files for the duration of
+ * a Maven session, so that goals chained in the same invocation, such as locate-package and find-package-usages,
+ * reuse them instead of computing them again. Like the resolved files of {@link ArtifactFileResolver}, the cache
+ * is stored in the repository session.
+ * Scan results are keyed by the kind of scan and the path, size and last modification time of the file, so that
+ * a file modified during the build is scanned again. As the references of all the classes of large builds would
+ * not fit in memory, scan results are only softly referenced: the garbage collector reclaims them when memory
+ * runs low, a reclaimed result simply being computed again.
+ */
+public class SessionCache {
+
+    private static final String SESSION_CACHE_KEY = SessionCache.class.getName();
+
+    /**
+     * Builds the dependency graph of a project when it is not cached yet.
+     */
+    @FunctionalInterface
+    public interface GraphBuilder {
+        DependencyNode build() throws Exception;
+    }
+
+    /**
+     * Scans a file when its result is not cached yet.
+     */
+    @FunctionalInterface
+    public interface Scan<T> {
+        T scan() throws Exception;
+    }
+
+    private final Map<String, DependencyNode> dependencyGraphs = new ConcurrentHashMap<>();
+    private final Map<String, ScanResultReference> scanResults = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> reclaimedResults = new ReferenceQueue<>();
+
+    /**
+     * Returns the cache of a session, creating it on first use.
+     */
+    public static SessionCache get(RepositorySystemSession repoSession) {
+        SessionData data = repoSession.getData();
+        Object cache = data.get(SESSION_CACHE_KEY);
+        while (cache == null) {
+            data.set(SESSION_CACHE_KEY, null, new SessionCache());
+            cache = data.get(SESSION_CACHE_KEY);
+        }
+        // A cache created by another version of the plugin, loaded by another class loader, cannot be shared
+        return cache instanceof SessionCache ? (SessionCache) cache : new SessionCache();
+    }
+
+    public DependencyNode getDependencyGraph(MavenProject project, GraphBuilder graphBuilder) throws Exception {
+        String key = project.getId();
+        DependencyNode graph = dependencyGraphs.get(key);
+        if (graph == null) {
+            graph = graphBuilder.build();
+            if (graph != null) {
+                dependencyGraphs.put(key, graph);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the result of a kind of scan of a file, scanning it if it was not scanned yet in this session.
+     * Concurrent scans of the same file may both run, the last result being kept.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getScanResult(String kind, File file, Scan<T> scan) throws Exception {
+        String key = kind + ":" + file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+        ScanResultReference reference = scanResults.get(key);
+        T result = reference != null ? (T) reference.get() : null;
+        if (result == null) {
+            result = scan.scan();
+            if (result != null) {
+                removeReclaimedResults();
+                scanResults.put(key, new ScanResultReference(key, result, reclaimedResults));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops the entries whose results were reclaimed by the garbage collector.
+     */
+    private void removeReclaimedResults() {
+        Reference<?> reference;
+        while ((reference = reclaimedResults.poll()) != null) {
+            ScanResultReference reclaimed = (ScanResultReference) reference;
+            scanResults.remove(reclaimed.key, reclaimed);
+        }
+    }
+
+    private static class ScanResultReference extends SoftReference<Object> {
+        private final String key;
+
+        private ScanResultReference(String key, Object result, ReferenceQueue<Object> queue) {
+            super(result, queue);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.resolution;
+
+import aQute.bnd.version.Version;
+import aQute.bnd.version.VersionRange;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.PackageMatcher;
+import org.apache.felix.utils.manifest.Clause;
+import org.apache.felix.utils.manifest.Parser;
+
+import java.util.*;
+
+/**
+ * Simulates the package wiring of a set of bundles, without starting an OSGi framework: every Import-Package
+ * clause is matched against the Export-Package clauses of all the bundles, and the bundles whose mandatory
+ * imports cannot be satisfied are reported with the reason.
+ * Exports are indexed by package name, so each import is only compared with the exporters of its package, and
+ * versions and version ranges are parsed once per distinct value. A bundle whose imports are only exported by
+ * unresolved bundles does not resolve either, which is propagated through the importers of each unresolved
+ * bundle until nothing changes.
+ * Only packages are simulated: uses constraints, Require-Bundle and Require-Capability are not checked, and
+ * fragments are resolved like the other bundles.
+ */
+public class WiringResolver {
+
+    private static final Version DEFAULT_VERSION = new Version(0, 0, 0);
+    private static final String DEFAULT_RANGE = "0.0.0";
+    private static final String JAVA_PACKAGE_PREFIX = "java.";
+
+    /**
+     * Why an import could not be satisfied.
+     */
+    public enum Reason {
+        /** No bundle exports the package. */
+        NOT_EXPORTED,
+        /** The package is exported, but in no version of the imported range. */
+        VERSION_MISMATCH,
+        /** The package is only exported, in the imported range, by bundles that do not resolve. */
+        EXPORTERS_UNRESOLVED
+    }
+
+    private final List<Bundle> bundles = new ArrayList<>();
+    private final Map<String, List<Export>> exportsByPackage = new HashMap<>();
+    private final Map<String, Version> versions = new HashMap<>();
+    private final Map<String, VersionRange> versionRanges = new HashMap<>();
+    private final List<String> warnings = new ArrayList<>();
+    private final PackageMatcher ignoredPackages;
+    private int importCount;
+
+    /**
+     * @param ignoredPackages the imported packages that are considered provided, or null
+     */
+    public WiringResolver(PackageMatcher ignoredPackages) {
+        this.ignoredPackages = ignoredPackages;
+    }
+
+    /**
+     * Adds a bundle with its Export-Package and Import-Package headers, either of which may be null.
+     */
+    public Bundle addBundle(String symbolicName, String version, String location, String exportPackage, String importPackage) {
+        Bundle bundle = new Bundle(bundles.size(), symbolicName, version, location, false);
+        bundles.add(bundle);
+        addExports(bundle, exportPackage);
+        if (importPackage != null) {
+            for (Clause clause : Parser.parseHeader(importPackage)) {
+                String packageName = clause.getName();
+                if (packageName.startsWith(JAVA_PACKAGE_PREFIX)
+                        || (ignoredPackages != null && ignoredPackages.matches(packageName))) {
+                    continue;
+                }
+                String range = clause.getAttribute("version");
+                if (range == null) {
+                    range = clause.getAttribute("specification-version");
+                }
+                boolean optional = "optional".equals(clause.getDirective("resolution"));
+                bundle.imports.add(new Import(packageName, range != null ? range : DEFAULT_RANGE,
+                        getVersionRange(bundle, range), optional));
+                importCount++;
+            }
+        }
+        return bundle;
+    }
+
+    /**
+     * Adds the packages exported by the framework, given with the syntax of an Export-Package header, such as
+     * the org.osgi.framework.system.packages.extra property of Karaf. The system bundle is always resolved.
+     */
+    public void addSystemPackages(String exportPackage) {
+        Bundle systemBundle = new Bundle(bundles.size(), "system.bundle", null, null, true);
+        bundles.add(systemBundle);
+        addExports(systemBundle, exportPackage);
+    }
+
+    public List<Bundle> getBundles() {
+        return bundles;
+    }
+
+    public int getExportedPackageCount() {
+        return exportsByPackage.size();
+    }
+
+    public int getImportCount() {
+        return importCount;
+    }
+
+    /**
+     * The versions and version ranges that could not be parsed, which were replaced by the lowest version.
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * Resolves all the bundles, then returns the unresolved ones, in the order they were added.
+     */
+    public List<Bundle> resolve() {
+        // The bundles importing from each bundle, to check them again if that bundle turns out not to resolve
+        List<List<Bundle>> importers = new ArrayList<>(bundles.size());
+        for (int i = 0; i < bundles.size(); i++) {
+            importers.add(new ArrayList<>());
+        }
+        for (Bundle bundle : bundles) {
+            Set<Integer> exporters = new HashSet<>();
+            for (Import anImport : bundle.imports) {
+                anImport.candidates = findCandidates(anImport);
+                for (Export candidate : anImport.candidates) {
+                    if (candidate.bundle != bundle && exporters.add(candidate.bundle.id)) {
+                        importers.get(candidate.bundle.id).add(bundle);
+                    }
+                }
+            }
+        }
+
+        Deque<Bundle> pending = new ArrayDeque<>(bundles);
+        while (!pending.isEmpty()) {
+            Bundle bundle = pending.poll();
+            if (bundle.resolved && !bundle.system && !canResolve(bundle)) {
+                bundle.resolved = false;
+                pending.addAll(importers.get(bundle.id));
+            }
+        }
+
+        List<Bundle> unresolvedBundles = new ArrayList<>();
+        for (Bundle bundle : bundles) {
+            if (!bundle.resolved) {
+                for (Import anImport : bundle.imports) {
+                    if (!anImport.optional) {
+                        anImport.reason = getReason(bundle, anImport);
+                    }
+                }
+                unresolvedBundles.add(bundle);
+            }
+        }
+        return unresolvedBundles;
+    }
+
+    private List<Export> findCandidates(Import anImport) {
+        List<Export> exports = exportsByPackage.get(anImport.packageName);
+        if (exports == null) {
+            return Collections.emptyList();
+        }
+        List<Export> candidates = new ArrayList<>(exports.size());
+        for (Export export : exports) {
+            if (anImport.versionRange.includes(export.version)) {
+                candidates.add(export);
+            }
+        }
+        return candidates;
+    }
+
+    private static boolean canResolve(Bundle bundle) {
+        for (Import anImport : bundle.imports) {
+            if (!anImport.optional && !isSatisfied(bundle, anImport)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An import is satisfied by a resolved exporter, or by the bundle itself when it exports the package too.
+     */
+    private static boolean isSatisfied(Bundle bundle, Import anImport) {
+        for (Export candidate : anImport.candidates) {
+            if (candidate.bundle == bundle || candidate.bundle.resolved) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Reason getReason(Bundle bundle, Import anImport) {
+        if (isSatisfied(bundle, anImport)) {
+            return null;
+        }
+        if (!anImport.candidates.isEmpty()) {
+            return Reason.EXPORTERS_UNRESOLVED;
+        }
+        return exportsByPackage.containsKey(anImport.packageName) ? Reason.VERSION_MISMATCH : Reason.NOT_EXPORTED;
+    }
+
+    /**
+     * Returns all the exports of a package, whatever their version.
+     */
+    public List<Export> getExports(String packageName) {
+        List<Export> exports = exportsByPackage.get(packageName);
+        return exports != null ? exports : Collections.emptyList();
+    }
+
+    private void addExports(Bundle bundle, String exportPackage) {
+        if (exportPackage == null) {
+            return;
+        }
+        for (Clause clause : Parser.parseHeader(exportPackage)) {
+            String version = clause.getAttribute("version");
+            if (version == null) {
+                version = clause.getAttribute("specification-version");
+            }
+            exportsByPackage.computeIfAbsent(clause.getName(), k -> new ArrayList<>(1))
+                    .add(new Export(bundle, getVersion(bundle, version)));
+        }
+    }
+
+    private Version getVersion(Bundle bundle, String version) {
+        if (version == null) {
+            return DEFAULT_VERSION;
+        }
+        Version parsedVersion = versions.get(version);
+        if (parsedVersion == null) {
+            try {
+                parsedVersion = new Version(version.trim());
+            } catch (IllegalArgumentException e) {
+                warnings.add("Invalid version " + version + " in " + bundle);
+                parsedVersion = DEFAULT_VERSION;
+            }
+            versions.put(version, parsedVersion);
+        }
+        return parsedVersion;
+    }
+
+    private VersionRange getVersionRange(Bundle bundle, String range) {
+        if (range == null) {
+            range = DEFAULT_RANGE;
+        }
+        VersionRange parsedRange = versionRanges.get(range);
+        if (parsedRange == null) {
+            try {
+                parsedRange = new VersionRange(range.trim());
+            } catch (IllegalArgumentException e) {
+                warnings.add("Invalid version range " + range + " in " + bundle);
+                parsedRange = new VersionRange(DEFAULT_RANGE);
+            }
+            versionRanges.put(range, parsedRange);
+        }
+        return parsedRange;
+    }
+
+    /**
+     * A bundle of the simulated framework.
+     */
+    public static class Bundle {
+        private final int id;
+        private final String symbolicName;
+        private final String version;
+        private final String location;
+        private final boolean system;
+        private final List<Import> imports = new ArrayList<>();
+        private boolean resolved = true;
+
+        private Bundle(int id, String symbolicName, String version, String location, boolean system) {
+            this.id = id;
+            this.symbolicName = symbolicName;
+            this.version = version;
+            this.location = location;
+            this.system = system;
+        }
+
+        public String getSymbolicName() {
+            return symbolicName;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public boolean isResolved() {
+            return resolved;
+        }
+
+        public List<Import> getImports() {
+            return imports;
+        }
+
+        @Override
+        public String toString() {
+            return version != null ? symbolicName + "/" + version : symbolicName;
+        }
+    }
+
+    /**
+     * An Import-Package clause, with the exports matching its version range once resolved.
+     */
+    public static class Import {
+        private final String packageName;
+        private final String range;
+        private final VersionRange versionRange;
+        private final boolean optional;
+        private List<Export> candidates = Collections.emptyList();
+        private Reason reason;
+
+        private Import(String packageName, String range, VersionRange versionRange, boolean optional) {
+            this.packageName = packageName;
+            this.range = range;
+            this.versionRange = versionRange;
+            this.optional = optional;
+        }
+
+        public String getPackageName() {
+            return packageName;
+        }
+
+        public String getRange() {
+            return range;
+        }
+
+        public boolean isOptional() {
+            return optional;
+        }
+
+        public List<Export> getCandidates() {
+            return candidates;
+        }
+
+        /**
+         * Why the import is not satisfied, or null if it is, or if it is optional or its bundle resolved.
+         */
+        public Reason getReason() {
+            return reason;
+        }
+    }
+
+    /**
+     * An Export-Package clause.
+     */
+    public static class Export {
+        private final Bundle bundle;
+        private final Version version;
+
+        private Export(Bundle bundle, Version version) {
+            this.bundle = bundle;
+            this.version = version;
+        }
+
+        public Bundle getBundle() {
+            return bundle;
+        }
+
+        public Version getVersion() {
+            return version;
+        }
+    }
+}
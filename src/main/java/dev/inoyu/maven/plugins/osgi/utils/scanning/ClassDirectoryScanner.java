@@ -0,0 +1,239 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Computes the class references of a classes directory incrementally.
+ * The size, last modification time and references of every class file are kept in a state file
+ * (usually under the build directory), so that a later scan only analyzes the class files that were
+ * added or modified since, the deleted ones simply being dropped.
+ * The CRC-32 of every class file is kept too, so that the copies of the class files packaged in a jar can be
+ * recognized from the checksums recorded in its central directory, and their references reused.
+ */
+public class ClassDirectoryScanner {
+
+    private static final int MAGIC = 0x4F534344; // "OSCD"
+    private static final int VERSION = 2;
+
+    /**
+     * Analyzes a single class file, given with its content, adding the packages it refers to and returning its
+     * fully qualified name.
+     */
+    @FunctionalInterface
+    public interface ClassAnalyzer {
+        String analyze(Path classFile, byte[] classBytes, Set<String> referredPackages) throws Exception;
+    }
+
+    private final File stateFile;
+    private int analyzedCount;
+    private int reusedCount;
+    private Map<String, Entry> scannedEntries = Collections.emptyMap();
+
+    public ClassDirectoryScanner(File stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * The number of class files analyzed by the last scan.
+     */
+    public int getAnalyzedCount() {
+        return analyzedCount;
+    }
+
+    /**
+     * The number of class files whose references were reused from the state file by the last scan.
+     */
+    public int getReusedCount() {
+        return reusedCount;
+    }
+
+    public ClassReferences scan(File classesDir, ClassAnalyzer analyzer) throws Exception {
+        Map<String, Entry> previousEntries = load();
+        SortedMap<String, BasicFileAttributes> classFiles = listClassFiles(classesDir.toPath());
+
+        analyzedCount = 0;
+        reusedCount = 0;
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, BasicFileAttributes> classFile : classFiles.entrySet()) {
+            String path = classFile.getKey();
+            long size = classFile.getValue().size();
+            long lastModified = classFile.getValue().lastModifiedTime().toMillis();
+
+            Entry entry = previousEntries.get(path);
+            if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+                reusedCount++;
+            } else {
+                // The class file is read once, for both the analysis and the checksum
+                Path classFilePath = classesDir.toPath().resolve(path);
+                byte[] classBytes = Files.readAllBytes(classFilePath);
+                Set<String> referredPackages = new LinkedHashSet<>();
+                String className = analyzer.analyze(classFilePath, classBytes, referredPackages);
+                CRC32 crc = new CRC32();
+                crc.update(classBytes);
+                entry = new Entry(size, lastModified, crc.getValue(), className, referredPackages);
+                analyzedCount++;
+            }
+            entries.put(path, entry);
+        }
+
+        if (analyzedCount > 0 || entries.size() != previousEntries.size()) {
+            save(entries);
+        }
+        scannedEntries = entries;
+
+        ClassReferences references = new ClassReferences();
+        for (Entry entry : entries.values()) {
+            references.add(entry.className, entry.referredPackages);
+        }
+        return references;
+    }
+
+    /**
+     * Adds the references of a class file found by the last scan, given by its path relative to the classes
+     * directory, provided it has the given size and CRC-32.
+     *
+     * @return false if the last scan did not find that class file, or found a different one
+     */
+    public boolean addReferences(String path, long size, long crc, ClassReferences references) {
+        Entry entry = scannedEntries.get(path);
+        if (entry == null || entry.size != size || entry.crc != crc) {
+            return false;
+        }
+        references.add(entry.className, entry.referredPackages);
+        return true;
+    }
+
+    private static SortedMap<String, BasicFileAttributes> listClassFiles(Path root) throws IOException {
+        SortedMap<String, BasicFileAttributes> classFiles = new TreeMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                String path = root.relativize(file).toString().replace(File.separatorChar, '/');
+                if (attributes.isRegularFile() && ConstantPoolScanner.isClassFile(path)) {
+                    classFiles.put(path, attributes);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return classFiles;
+    }
+
+    private Map<String, Entry> load() {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!stateFile.isFile()) {
+            return entries;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return entries;
+            }
+            String[] packageTable = new String[ReferenceIndex.readVarInt(in)];
+            for (int i = 0; i < packageTable.length; i++) {
+                packageTable[i] = in.readUTF();
+            }
+            int entryCount = ReferenceIndex.readVarInt(in);
+            for (int i = 0; i < entryCount; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                long crc = in.readLong();
+                String className = in.readUTF();
+                int packageCount = ReferenceIndex.readVarInt(in);
+                Set<String> packages = new LinkedHashSet<>();
+                for (int j = 0; j < packageCount; j++) {
+                    packages.add(packageTable[ReferenceIndex.readVarInt(in)]);
+                }
+                entries.put(path, new Entry(size, lastModified, crc, className, packages));
+            }
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            // A corrupted state only means that all the classes are analyzed again
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the state to a temporary file that then replaces the previous state, so that an interrupted build or
+     * a concurrent one never leaves or reads a partially written state.
+     */
+    private void save(Map<String, Entry> entries) throws IOException {
+        File parent = stateFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+
+        Map<String, Integer> packageTable = new LinkedHashMap<>();
+        for (Entry entry : entries.values()) {
+            for (String packageName : entry.referredPackages) {
+                packageTable.putIfAbsent(packageName, packageTable.size());
+            }
+        }
+
+        File tempFile = File.createTempFile(stateFile.getName(), ".tmp", parent);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                ReferenceIndex.writeVarInt(out, packageTable.size());
+                for (String packageName : packageTable.keySet()) {
+                    out.writeUTF(packageName);
+                }
+                ReferenceIndex.writeVarInt(out, entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().size);
+                    out.writeLong(entry.getValue().lastModified);
+                    out.writeLong(entry.getValue().crc);
+                    out.writeUTF(entry.getValue().className);
+                    ReferenceIndex.writeVarInt(out, entry.getValue().referredPackages.size());
+                    for (String packageName : entry.getValue().referredPackages) {
+                        ReferenceIndex.writeVarInt(out, packageTable.get(packageName));
+                    }
+                }
+            }
+            try {
+                Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final long crc;
+        private final String className;
+        private final Set<String> referredPackages;
+
+        private Entry(long size, long lastModified, long crc, String className, Set<String> referredPackages) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.crc = crc;
+            this.className = className;
+            this.referredPackages = referredPackages;
+        }
+    }
+}
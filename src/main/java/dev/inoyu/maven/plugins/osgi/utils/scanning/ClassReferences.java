@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.util.*;
+
+/**
+ * The packages referred to by each class of a jar or directory, as computed once per distinct file
+ * and then shared by every dependency trail reaching it.
+ */
+public class ClassReferences {
+
+    private final Map<String, Set<String>> referredPackages = new LinkedHashMap<>();
+
+    public void add(String className, Set<String> packages) {
+        referredPackages.put(className, packages);
+    }
+
+    public Map<String, Set<String>> getReferredPackages() {
+        return referredPackages;
+    }
+
+    public int size() {
+        return referredPackages.size();
+    }
+
+    public boolean isEmpty() {
+        return referredPackages.isEmpty();
+    }
+}
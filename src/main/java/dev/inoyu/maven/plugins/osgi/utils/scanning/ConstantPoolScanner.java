@@ -0,0 +1,787 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A lightweight alternative to the BND analyzer that computes the packages referred to by each class
+ * by parsing only what is needed from the class files: the constant pool (member references and
+ * descriptors), the field and method descriptors, the generic signatures, the runtime annotations and
+ * the class references of the byte code.
+ * It follows the same rules as BND's {@code Clazz.getReferred()}, so the results are the same, but
+ * without building the whole BND model (manifest, exports, imports...) of the analyzed jar.
+ */
+public class ConstantPoolScanner {
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final int ACC_SYNTHETIC = 0x1000;
+    private static final int ACC_MODULE = 0x8000;
+
+    private static final int ITEM_OBJECT = 7;
+    private static final int ITEM_UNINITIALIZED = 8;
+
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int IINC = 0x84;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int LOOKUPSWITCH = 0xab;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int NEW = 0xbb;
+    private static final int ANEWARRAY = 0xbd;
+    private static final int CHECKCAST = 0xc0;
+    private static final int INSTANCEOF = 0xc1;
+    private static final int WIDE = 0xc4;
+    private static final int MULTIANEWARRAY = 0xc5;
+
+    private static final String CLASS_LOOKUP_DESCRIPTOR = "(Ljava/lang/String;)Ljava/lang/Class;";
+
+    /**
+     * The size of the operands of each instruction, the switch instructions and wide being handled separately.
+     */
+    private static final int[] OPERAND_SIZES = new int[256];
+
+    static {
+        int[] oneByteOperands = {0x10, 0x12, 0x15, 0x16, 0x17, 0x18, 0x19, 0x36, 0x37, 0x38, 0x39, 0x3a, 0xa9, 0xbc};
+        int[] twoBytesOperands = {0x11, 0x13, 0x14, 0x84, 0x99, 0x9a, 0x9b, 0x9c, 0x9d, 0x9e, 0x9f, 0xa0, 0xa1, 0xa2,
+                0xa3, 0xa4, 0xa5, 0xa6, 0xa7, 0xa8, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6, 0xb7, 0xb8, 0xbb, 0xbd, 0xc0, 0xc1,
+                0xc6, 0xc7};
+        int[] fourBytesOperands = {0xb9, 0xba, 0xc8, 0xc9};
+        for (int opcode : oneByteOperands) {
+            OPERAND_SIZES[opcode] = 1;
+        }
+        for (int opcode : twoBytesOperands) {
+            OPERAND_SIZES[opcode] = 2;
+        }
+        for (int opcode : fourBytesOperands) {
+            OPERAND_SIZES[opcode] = 4;
+        }
+        OPERAND_SIZES[MULTIANEWARRAY] = 3;
+    }
+
+    private final List<String> skippedClasses = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * The class files that {@link #scan} skipped because they could not be parsed, with the reason.
+     */
+    public List<String> getSkippedClasses() {
+        return skippedClasses;
+    }
+
+    /**
+     * Scans all the classes of a jar file or of a classes directory. Class files that cannot be parsed are skipped
+     * and reported by {@link #getSkippedClasses()}, so that a single corrupt class does not prevent the others from
+     * being analyzed.
+     */
+    public ClassReferences scan(File file) throws IOException {
+        ClassReferences references = new ClassReferences();
+        if (file.isDirectory()) {
+            Path root = file.toPath();
+            List<Path> classFiles;
+            try (Stream<Path> paths = Files.walk(root)) {
+                classFiles = paths.filter(path -> isClassFile(root.relativize(path).toString().replace(File.separatorChar, '/')))
+                        .sorted().collect(Collectors.toList());
+            }
+            for (Path classFile : classFiles) {
+                scanClassOrSkip(Files.readAllBytes(classFile), classFile.toString(), references);
+            }
+        } else {
+            try (ZipFile zipFile = new ZipFile(file)) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && isClassFile(entry.getName())) {
+                        try (InputStream in = zipFile.getInputStream(entry)) {
+                            scanClassOrSkip(in.readAllBytes(), file + "!/" + entry.getName(), references);
+                        }
+                    }
+                }
+            }
+        }
+        return references;
+    }
+
+    private void scanClassOrSkip(byte[] classBytes, String location, ClassReferences references) {
+        try {
+            scanClass(classBytes, references);
+        } catch (IOException e) {
+            skippedClasses.add(location + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Parses a single class file and adds its referred packages to the given references.
+     *
+     * @return the fully qualified name of the class
+     */
+    public String scanClass(byte[] classBytes, ClassReferences references) throws IOException {
+        Set<String> referredPackages = new LinkedHashSet<>();
+        String className = parseClass(classBytes, referredPackages);
+        references.add(className, referredPackages);
+        return className;
+    }
+
+    /**
+     * Parses a single class file and adds its referred packages to the given set.
+     *
+     * @return the fully qualified name of the class
+     */
+    public String scanClass(byte[] classBytes, Set<String> referredPackages) throws IOException {
+        return parseClass(classBytes, referredPackages);
+    }
+
+    /**
+     * Whether a jar entry or a path relative to a classes directory is a class file to analyze.
+     */
+    public static boolean isClassFile(String name) {
+        return name.endsWith(".class") && !name.startsWith("META-INF/");
+    }
+
+    private String parseClass(byte[] bytes, Set<String> packages) throws IOException {
+        ClassReader in = new ClassReader(bytes);
+        if (in.u4() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.skip(4); // minor and major versions
+
+        ConstantPool pool = new ConstantPool(in);
+
+        int accessFlags = in.u2();
+        String className = pool.className(in.u2());
+        if ((accessFlags & ACC_MODULE) == 0) {
+            addClass(className, packages);
+        }
+        int superClass = in.u2();
+        if (superClass != 0) {
+            addClass(pool.className(superClass), packages);
+        }
+        int interfaceCount = in.u2();
+        for (int i = 0; i < interfaceCount; i++) {
+            addClass(pool.className(in.u2()), packages);
+        }
+
+        // The classes of member references and all the descriptors are referred to, even if they are not in the API
+        for (int i = 1; i < pool.size; i++) {
+            switch (pool.tags[i]) {
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                    addClassConstant(pool, pool.first[i], packages);
+                    break;
+                case CONSTANT_NAME_AND_TYPE:
+                    parseDescriptor(pool.utf8[pool.second[i]], packages);
+                    break;
+                case CONSTANT_METHOD_TYPE:
+                    parseDescriptor(pool.utf8[pool.first[i]], packages);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // The byte code is crawled for the Class.forName("...") and class$("...") (pre Java 5 class literals) calls
+        CodeContext context = new CodeContext(pool, className,
+                pool.findMethodReference("java/lang/Class", "forName", CLASS_LOOKUP_DESCRIPTOR),
+                pool.findMethodReference(className, "class$", CLASS_LOOKUP_DESCRIPTOR));
+
+        for (int members = 0; members < 2; members++) {
+            int memberCount = in.u2();
+            for (int i = 0; i < memberCount; i++) {
+                int memberAccessFlags = in.u2();
+                in.skip(2); // name
+                parseDescriptor(pool.utf8[in.u2()], packages);
+                parseAttributes(in, context, memberAccessFlags, packages);
+            }
+        }
+        parseAttributes(in, context, accessFlags, packages);
+
+        return className.replace('/', '.');
+    }
+
+    private void parseAttributes(ClassReader in, CodeContext context, int accessFlags, Set<String> packages)
+            throws IOException {
+        ConstantPool pool = context.pool;
+        int attributeCount = in.u2();
+        for (int i = 0; i < attributeCount; i++) {
+            String name = pool.utf8[in.u2()];
+            int length = in.u4();
+            int end = in.position() + length;
+            switch (name) {
+                case "Signature":
+                    // Generic signatures of synthetic elements are ignored, like BND does
+                    if ((accessFlags & ACC_SYNTHETIC) == 0) {
+                        parseSignature(pool.utf8[in.u2()], packages);
+                    }
+                    break;
+                case "RuntimeVisibleAnnotations":
+                    parseAnnotations(in, pool, packages);
+                    break;
+                case "RuntimeVisibleParameterAnnotations":
+                    int parameterCount = in.u1();
+                    for (int p = 0; p < parameterCount; p++) {
+                        parseAnnotations(in, pool, packages);
+                    }
+                    break;
+                case "RuntimeVisibleTypeAnnotations":
+                    parseTypeAnnotations(in, pool, packages);
+                    break;
+                case "AnnotationDefault":
+                    parseElementValue(in, pool, packages);
+                    break;
+                case "EnclosingMethod":
+                    addClassConstant(pool, in.u2(), packages);
+                    break;
+                case "Exceptions":
+                    int exceptionCount = in.u2();
+                    for (int e = 0; e < exceptionCount; e++) {
+                        addClassConstant(pool, in.u2(), packages);
+                    }
+                    break;
+                case "BootstrapMethods":
+                    int bootstrapMethodCount = in.u2();
+                    for (int m = 0; m < bootstrapMethodCount; m++) {
+                        in.skip(2); // method handle
+                        int argumentCount = in.u2();
+                        for (int a = 0; a < argumentCount; a++) {
+                            addClassConstant(pool, in.u2(), packages);
+                        }
+                    }
+                    break;
+                case "StackMapTable":
+                    parseStackMapTable(in, pool, packages);
+                    break;
+                case "Code":
+                    in.skip(4); // max stack and max locals
+                    int codeLength = in.u4();
+                    parseCode(in, codeLength, context, packages);
+                    int exceptionHandlerCount = in.u2();
+                    for (int h = 0; h < exceptionHandlerCount; h++) {
+                        in.skip(6); // start, end and handler offsets
+                        addClassConstant(pool, in.u2(), packages);
+                    }
+                    parseAttributes(in, context, 0, packages);
+                    break;
+                default:
+                    // Invisible annotations have the CLASS retention policy, they are not needed at runtime
+                    break;
+            }
+            in.seek(end);
+        }
+    }
+
+    private void parseCode(ClassReader in, int length, CodeContext context, Set<String> packages) throws IOException {
+        ConstantPool pool = context.pool;
+        int start = in.position();
+        int end = start + length;
+        int lastConstant = -1;
+        while (in.position() < end) {
+            int opcode = in.u1();
+            switch (opcode) {
+                case LDC:
+                    lastConstant = in.u1();
+                    addClassConstant(pool, lastConstant, packages);
+                    break;
+                case LDC_W:
+                    lastConstant = in.u2();
+                    addClassConstant(pool, lastConstant, packages);
+                    break;
+                case ANEWARRAY:
+                case CHECKCAST:
+                case INSTANCEOF:
+                case NEW:
+                    addClassConstant(pool, in.u2(), packages);
+                    lastConstant = -1;
+                    break;
+                case MULTIANEWARRAY:
+                    addClassConstant(pool, in.u2(), packages);
+                    in.skip(1); // dimensions
+                    lastConstant = -1;
+                    break;
+                case INVOKESTATIC:
+                    int methodReference = in.u2();
+                    if ((methodReference == context.forName || methodReference == context.classLiteral)
+                            && lastConstant > 0 && lastConstant < pool.size && pool.tags[lastConstant] == CONSTANT_STRING) {
+                        String loadedClass = pool.utf8[pool.first[lastConstant]];
+                        if (!loadedClass.equals("class") && loadedClass.indexOf('.') > 0) {
+                            addClass(loadedClass.replace('.', '/'), packages);
+                        }
+                    }
+                    lastConstant = -1;
+                    break;
+                case WIDE:
+                    in.skip(in.u1() == IINC ? 4 : 2);
+                    lastConstant = -1;
+                    break;
+                case TABLESWITCH:
+                    in.skip(padding(in.position() - start));
+                    in.skip(4); // default offset
+                    int low = in.u4();
+                    int high = in.u4();
+                    skipSwitchTable(in, high < low ? -1 : ((long) high - low + 1) * 4, end, context);
+                    lastConstant = -1;
+                    break;
+                case LOOKUPSWITCH:
+                    in.skip(padding(in.position() - start));
+                    in.skip(4); // default offset
+                    int pairCount = in.u4();
+                    skipSwitchTable(in, pairCount < 0 ? -1 : (long) pairCount * 8, end, context);
+                    lastConstant = -1;
+                    break;
+                default:
+                    in.skip(OPERAND_SIZES[opcode]);
+                    lastConstant = -1;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Skips the jump table of a switch, checking that its size, computed from counts read in the class file, is
+     * neither negative nor beyond the end of the code, so that a corrupt class is reported instead of seeking
+     * anywhere.
+     */
+    private static void skipSwitchTable(ClassReader in, long size, int end, CodeContext context) throws IOException {
+        if (size < 0 || size > end - in.position()) {
+            throw new IOException("Invalid switch in " + context.className.replace('/', '.'));
+        }
+        in.skip((int) size);
+    }
+
+    private static int padding(int offset) {
+        int remainder = offset % 4;
+        return remainder == 0 ? 0 : 4 - remainder;
+    }
+
+    private void parseStackMapTable(ClassReader in, ConstantPool pool, Set<String> packages) throws IOException {
+        int frameCount = in.u2();
+        for (int i = 0; i < frameCount; i++) {
+            int frameType = in.u1();
+            if (frameType < 64) {
+                continue; // same frame
+            }
+            if (frameType < 128) {
+                parseVerificationType(in, pool, packages); // same locals, one stack item
+            } else if (frameType == 247) {
+                in.skip(2);
+                parseVerificationType(in, pool, packages);
+            } else if (frameType >= 248 && frameType <= 251) {
+                in.skip(2); // chop or same frame extended
+            } else if (frameType >= 252 && frameType <= 254) {
+                in.skip(2);
+                for (int local = 0; local < frameType - 251; local++) {
+                    parseVerificationType(in, pool, packages);
+                }
+            } else if (frameType == 255) {
+                in.skip(2);
+                int localCount = in.u2();
+                for (int local = 0; local < localCount; local++) {
+                    parseVerificationType(in, pool, packages);
+                }
+                int stackCount = in.u2();
+                for (int stack = 0; stack < stackCount; stack++) {
+                    parseVerificationType(in, pool, packages);
+                }
+            }
+        }
+    }
+
+    private void parseVerificationType(ClassReader in, ConstantPool pool, Set<String> packages) throws IOException {
+        int tag = in.u1();
+        if (tag == ITEM_OBJECT) {
+            addClassConstant(pool, in.u2(), packages);
+        } else if (tag == ITEM_UNINITIALIZED) {
+            in.skip(2); // offset of the new instruction
+        }
+    }
+
+    private void parseAnnotations(ClassReader in, ConstantPool pool, Set<String> packages) throws IOException {
+        int annotationCount = in.u2();
+        for (int i = 0; i < annotationCount; i++) {
+            parseAnnotation(in, pool, packages);
+        }
+    }
+
+    private void parseAnnotation(ClassReader in, ConstantPool pool, Set<String> packages) throws IOException {
+        parseSignature(pool.utf8[in.u2()], packages);
+        int pairCount = in.u2();
+        for (int i = 0; i < pairCount; i++) {
+            in.skip(2); // element name
+            parseElementValue(in, pool, packages);
+        }
+    }
+
+    private void parseElementValue(ClassReader in, ConstantPool pool, Set<String> packages) throws IOException {
+        int tag = in.u1();
+        switch (tag) {
+            case 'e':
+                parseSignature(pool.utf8[in.u2()], packages);
+                in.skip(2); // constant name
+                break;
+            case 'c':
+                parseSignature(pool.utf8[in.u2()], packages);
+                break;
+            case '@':
+                parseAnnotation(in, pool, packages);
+                break;
+            case '[':
+                int valueCount = in.u2();
+                for (int i = 0; i < valueCount; i++) {
+                    parseElementValue(in, pool, packages);
+                }
+                break;
+            default:
+                in.skip(2); // constant value index
+                break;
+        }
+    }
+
+    private void parseTypeAnnotations(ClassReader in, ConstantPool pool, Set<String> packages) throws IOException {
+        int annotationCount = in.u2();
+        for (int i = 0; i < annotationCount; i++) {
+            int targetType = in.u1();
+            switch (targetType) {
+                case 0x00:
+                case 0x01:
+                case 0x16:
+                    in.skip(1);
+                    break;
+                case 0x10:
+                case 0x11:
+                case 0x12:
+                case 0x17:
+                case 0x42:
+                case 0x43:
+                case 0x44:
+                case 0x45:
+                case 0x46:
+                    in.skip(2);
+                    break;
+                case 0x13:
+                case 0x14:
+                case 0x15:
+                    break;
+                case 0x40:
+                case 0x41:
+                    in.skip(6 * in.u2());
+                    break;
+                case 0x47:
+                case 0x48:
+                case 0x49:
+                case 0x4A:
+                case 0x4B:
+                    in.skip(3);
+                    break;
+                default:
+                    throw new IOException("Invalid type annotation target " + targetType);
+            }
+            in.skip(2 * in.u1()); // type path
+            parseAnnotation(in, pool, packages);
+        }
+    }
+
+    private static void addClassConstant(ConstantPool pool, int index, Set<String> packages) {
+        if (index > 0 && index < pool.size && pool.tags[index] == CONSTANT_CLASS) {
+            addClass(pool.className(index), packages);
+        }
+    }
+
+    /**
+     * Adds the package of a class given by its internal name, array classes being given by their descriptor.
+     */
+    private static void addClass(String internalName, Set<String> packages) {
+        if (internalName.startsWith("[")) {
+            parseSignature(internalName, packages);
+        } else if (internalName.length() != 1 || "BCDFIJSVZ".indexOf(internalName.charAt(0)) < 0) {
+            addPackage(internalName, 0, internalName.length(), packages);
+        }
+    }
+
+    /**
+     * Only the descriptors that may contain class types are parsed, the others are primitive types.
+     */
+    private static void parseDescriptor(String descriptor, Set<String> packages) {
+        if (!descriptor.isEmpty() && "(L[<T".indexOf(descriptor.charAt(0)) >= 0) {
+            parseSignature(descriptor, packages);
+        }
+    }
+
+    /**
+     * Adds the packages of all the class types found in a descriptor or in a generic signature.
+     */
+    static void parseSignature(String signature, Set<String> packages) {
+        int position = 0;
+        int length = signature.length();
+        if (length > 0 && signature.charAt(0) == '<') {
+            position = parseTypeParameters(signature, position, packages);
+        }
+        while (position < length) {
+            char c = signature.charAt(position);
+            if (c == '(' || c == ')' || c == '^') {
+                position++;
+            } else {
+                position = parseType(signature, position, packages);
+            }
+        }
+    }
+
+    private static int parseTypeParameters(String signature, int position, Set<String> packages) {
+        position++; // '<'
+        while (signature.charAt(position) != '>') {
+            position = signature.indexOf(':', position);
+            while (signature.charAt(position) == ':') {
+                position++;
+                char next = signature.charAt(position);
+                if (next != ':' && next != '>') {
+                    position = parseType(signature, position, packages);
+                }
+            }
+        }
+        return position + 1;
+    }
+
+    private static int parseType(String signature, int position, Set<String> packages) {
+        switch (signature.charAt(position)) {
+            case 'L':
+                return parseClassType(signature, position + 1, packages);
+            case 'T':
+                return signature.indexOf(';', position) + 1;
+            case '[':
+            case '+':
+            case '-':
+                return parseType(signature, position + 1, packages);
+            default:
+                return position + 1; // primitive types, void and '*'
+        }
+    }
+
+    private static int parseClassType(String signature, int position, Set<String> packages) {
+        int start = position;
+        while (true) {
+            char c = signature.charAt(position);
+            if (c == ';' || c == '<' || c == '.') {
+                break;
+            }
+            position++;
+        }
+        addPackage(signature, start, position, packages);
+
+        while (true) {
+            char c = signature.charAt(position);
+            if (c == ';') {
+                return position + 1;
+            } else if (c == '<') {
+                position++;
+                while (signature.charAt(position) != '>') {
+                    position = parseType(signature, position, packages);
+                }
+                position++;
+            } else if (c == '.') {
+                // Inner class of a parameterized type, it is in the same package as its outer class
+                position++;
+                while (";<.".indexOf(signature.charAt(position)) < 0) {
+                    position++;
+                }
+            } else {
+                return position;
+            }
+        }
+    }
+
+    private static void addPackage(String internalName, int start, int end, Set<String> packages) {
+        int lastSlash = internalName.lastIndexOf('/', end - 1);
+        if (lastSlash < start) {
+            packages.add(".");
+        } else {
+            packages.add(internalName.substring(start, lastSlash).replace('/', '.'));
+        }
+    }
+
+    /**
+     * The constant pool of a class: the tag of each entry, the one or two indexes it holds and the UTF-8 strings.
+     */
+    private static class ConstantPool {
+        private final int size;
+        private final byte[] tags;
+        private final int[] first;
+        private final int[] second;
+        private final String[] utf8;
+
+        private ConstantPool(ClassReader in) throws IOException {
+            size = in.u2();
+            tags = new byte[size];
+            first = new int[size];
+            second = new int[size];
+            utf8 = new String[size];
+
+            for (int i = 1; i < size; i++) {
+                int tag = in.u1();
+                tags[i] = (byte) tag;
+                switch (tag) {
+                    case CONSTANT_UTF8:
+                        utf8[i] = in.utf8();
+                        break;
+                    case CONSTANT_CLASS:
+                    case CONSTANT_STRING:
+                    case CONSTANT_METHOD_TYPE:
+                    case CONSTANT_MODULE:
+                    case CONSTANT_PACKAGE:
+                        first[i] = in.u2();
+                        break;
+                    case CONSTANT_METHOD_HANDLE:
+                        in.skip(3);
+                        break;
+                    case CONSTANT_FIELDREF:
+                    case CONSTANT_METHODREF:
+                    case CONSTANT_INTERFACE_METHODREF:
+                    case CONSTANT_NAME_AND_TYPE:
+                    case CONSTANT_DYNAMIC:
+                    case CONSTANT_INVOKE_DYNAMIC:
+                        first[i] = in.u2();
+                        second[i] = in.u2();
+                        break;
+                    case CONSTANT_INTEGER:
+                    case CONSTANT_FLOAT:
+                        in.skip(4);
+                        break;
+                    case CONSTANT_LONG:
+                    case CONSTANT_DOUBLE:
+                        in.skip(8);
+                        i++; // these constants take two slots
+                        break;
+                    default:
+                        throw new IOException("Invalid constant pool tag " + tag);
+                }
+            }
+        }
+
+        private String className(int classIndex) {
+            return utf8[first[classIndex]];
+        }
+
+        private int findMethodReference(String className, String methodName, String descriptor) {
+            for (int i = 1; i < size; i++) {
+                if ((tags[i] == CONSTANT_METHODREF || tags[i] == CONSTANT_INTERFACE_METHODREF)
+                        && className.equals(className(first[i]))) {
+                    int nameAndType = second[i];
+                    if (methodName.equals(utf8[first[nameAndType]]) && descriptor.equals(utf8[second[nameAndType]])) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * What the byte code crawler needs to know about the class being parsed.
+     */
+    private static class CodeContext {
+        private final ConstantPool pool;
+        private final String className;
+        private final int forName;
+        private final int classLiteral;
+
+        private CodeContext(ConstantPool pool, String className, int forName, int classLiteral) {
+            this.pool = pool;
+            this.className = className;
+            this.forName = forName;
+            this.classLiteral = classLiteral;
+        }
+    }
+
+    /**
+     * A big-endian reader over the bytes of a class file.
+     */
+    private static class ClassReader {
+        private final byte[] bytes;
+        private int position;
+
+        private ClassReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int position() {
+            return position;
+        }
+
+        void seek(int newPosition) throws IOException {
+            if (newPosition < 0) {
+                throw new IOException("Invalid offset in class file");
+            }
+            if (newPosition > bytes.length) {
+                throw new EOFException("Truncated class file");
+            }
+            position = newPosition;
+        }
+
+        void skip(int count) throws IOException {
+            seek(position + count);
+        }
+
+        int u1() throws IOException {
+            if (position >= bytes.length) {
+                throw new EOFException("Truncated class file");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        int u2() throws IOException {
+            return (u1() << 8) | u1();
+        }
+
+        int u4() throws IOException {
+            return (u2() << 16) | u2();
+        }
+
+        String utf8() throws IOException {
+            int length = u2();
+            int start = position;
+            skip(length);
+            // Class file strings use modified UTF-8, which only differs from UTF-8 for characters names never contain
+            for (int i = start; i < start + length; i++) {
+                if (bytes[i] < 0) {
+                    return new DataInputStream(new ByteArrayInputStream(bytes, start - 2, length + 2)).readUTF();
+                }
+            }
+            return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
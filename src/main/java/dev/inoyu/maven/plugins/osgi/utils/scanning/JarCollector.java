@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Expands locations into the jar files they designate: a jar file designates itself, a directory all the jars
+ * found below it, such as the system directory of a Karaf distribution or a subtree of a Maven repository, and
+ * a glob pattern, such as {@code deploy/**}{@code /*.jar}, the files matching it below its first directory
+ * without wildcards.
+ * Glob patterns follow {@link FileSystem#getPathMatcher}, where {@code **} crosses directory boundaries but
+ * {@code /} must still be matched literally: {@code deploy/**}{@code /*.jar} matches the jars in the subdirectories
+ * of {@code deploy} but not the ones directly in it, which {@code deploy/*.jar} or {@code deploy/**.jar} match.
+ * Directories are walked with {@link Files#walkFileTree}, without following symbolic links, and the jars of each
+ * location are sorted by path so that the output of the goals does not depend on the file system.
+ */
+public class JarCollector {
+
+    private static final String JAR_SUFFIX = ".jar";
+    private static final String[] IGNORED_SUFFIXES = {"-sources.jar", "-javadoc.jar"};
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private final Set<Path> jars = new LinkedHashSet<>();
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Adds the jars designated by a location, relative locations being resolved against the current directory.
+     *
+     * @throws NoSuchFileException if the location is neither an existing file or directory nor a glob pattern
+     *                             matching at least one file, including when the directory of the pattern is missing
+     */
+    public void add(String location) throws IOException {
+        int globStart = indexOfGlob(location);
+        if (globStart < 0) {
+            Path path = Paths.get(location);
+            if (Files.isDirectory(path)) {
+                walk(path, null);
+            } else if (Files.exists(path)) {
+                jars.add(path);
+            } else {
+                throw new NoSuchFileException(location);
+            }
+            return;
+        }
+        // The directory holding the first wildcard is walked, the pattern being matched against the relative paths
+        int separator = Math.max(location.lastIndexOf('/', globStart), location.lastIndexOf('\\', globStart));
+        Path baseDirectory = Paths.get(separator < 0 ? "." : separator == 0 ? "/" : location.substring(0, separator));
+        String relativePattern = location.substring(separator + 1);
+        if (!Files.isDirectory(baseDirectory)
+                || walk(baseDirectory, baseDirectory.getFileSystem().getPathMatcher("glob:" + relativePattern)) == 0) {
+            throw new NoSuchFileException(location);
+        }
+    }
+
+    /**
+     * The jars collected so far, in the order of the locations, each one only once.
+     */
+    public List<Path> getJars() {
+        return new ArrayList<>(jars);
+    }
+
+    /**
+     * The files and directories that could not be read while walking the locations, with the reason.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Walks a directory for the jars or, with a matcher, the files whose path relative to the directory matches.
+     *
+     * @return the number of files found
+     */
+    private int walk(Path directory, PathMatcher matcher) throws IOException {
+        List<Path> found = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && (matcher != null
+                        ? matcher.matches(directory.relativize(file)) : isJar(file.getFileName().toString()))) {
+                    found.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                errors.add(file + " (" + e.getMessage() + ")");
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(found);
+        jars.addAll(found);
+        return found.size();
+    }
+
+    private static boolean isJar(String fileName) {
+        if (!fileName.endsWith(JAR_SUFFIX)) {
+            return false;
+        }
+        for (String ignoredSuffix : IGNORED_SUFFIXES) {
+            if (fileName.endsWith(ignoredSuffix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOfGlob(String location) {
+        for (int i = 0; i < location.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(location.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
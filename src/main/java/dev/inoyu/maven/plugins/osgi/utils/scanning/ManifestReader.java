@@ -0,0 +1,50 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the manifest of a jar file. Only the manifest entry is located through the central directory, read and
+ * inflated, a full {@link JarFile} only being opened for the archives {@link ZipCentralDirectory} does not support.
+ * As with {@link JarFile#getManifest()}, the manifest name is matched regardless of case, so that the manifests
+ * stored as {@code meta-inf/manifest.mf} by some tools are still found.
+ */
+public final class ManifestReader {
+
+    private ManifestReader() {
+    }
+
+    /**
+     * Returns the manifest of a jar file, or null if it has none.
+     */
+    public static Manifest read(File file) throws IOException {
+        byte[] manifestBytes;
+        try (ZipCentralDirectory directory = ZipCentralDirectory.open(file)) {
+            manifestBytes = directory.readEntryIgnoreCase(JarFile.MANIFEST_NAME);
+        } catch (ZipException e) {
+            try (JarFile jarFile = new JarFile(file)) {
+                return jarFile.getManifest();
+            }
+        }
+        return manifestBytes != null ? new Manifest(new ByteArrayInputStream(manifestBytes)) : null;
+    }
+}
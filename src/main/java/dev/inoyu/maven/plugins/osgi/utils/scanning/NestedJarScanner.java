@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Scans the jars nested in a jar file, such as the jars embedded in a bundle through its Bundle-ClassPath or the
+ * bundles of a Karaf KAR file, and the jars nested in those, up to {@link #MAX_DEPTH} levels.
+ * The nested jars are found through the central directory of the outer jar and then streamed straight from it,
+ * entry after entry, without temporary files. Only the class files being analyzed are held in memory, one at a
+ * time, and those larger than the configured budget are skipped, so memory use does not depend on the size of
+ * the jars.
+ */
+public class NestedJarScanner {
+
+    public static final int MAX_DEPTH = 4;
+
+    private static final String JAR_SUFFIX = ".jar";
+
+    /**
+     * Receives the class files of the nested jars, with the path of the nested jar they come from.
+     */
+    @FunctionalInterface
+    public interface ClassConsumer {
+        void accept(String jarPath, byte[] classBytes) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface EntryVisitor {
+        void visit(String jarPath, ZipEntry entry, InputStream in) throws Exception;
+    }
+
+    private final long maxEntrySize;
+    private final List<String> skippedEntries = new ArrayList<>();
+
+    /**
+     * @param maxEntrySize the size of the largest class file read in memory for analysis
+     */
+    public NestedJarScanner(long maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * The class files and nested jars that could not be scanned, because they exceed the memory budget or
+     * are corrupted, with the reason.
+     */
+    public List<String> getSkippedEntries() {
+        return skippedEntries;
+    }
+
+    /**
+     * Lists the distinct packages of all the entries of the jars nested in a jar file. Entry data is only
+     * streamed through, never buffered.
+     */
+    public Set<String> listPackages(File file) throws Exception {
+        Set<String> packages = new TreeSet<>();
+        visit(file, (jarPath, entry, in) -> {
+            String name = entry.getName();
+            int lastSlash = name.lastIndexOf('/');
+            if (lastSlash > 0) {
+                packages.add(name.substring(0, lastSlash).replace('/', '.'));
+            }
+        });
+        return packages;
+    }
+
+    /**
+     * Hands over the class files of all the jars nested in a jar file, one at a time.
+     */
+    public void scanClasses(File file, ClassConsumer consumer) throws Exception {
+        visit(file, (jarPath, entry, in) -> {
+            if (ConstantPoolScanner.isClassFile(entry.getName())) {
+                byte[] classBytes = readBounded(entry, in);
+                if (classBytes == null) {
+                    skippedEntries.add(jarPath + "!/" + entry.getName() + " (larger than " + maxEntrySize + " bytes)");
+                } else {
+                    consumer.accept(jarPath, classBytes);
+                }
+            }
+        });
+    }
+
+    /**
+     * Visits the (non-directory) entries of the jars nested in a jar file that are stored directly in one of the
+     * given packages. Their checksums are the CRC-32 of their data, computed while it is streamed through, so that
+     * they can be compared with the ones recorded in the central directory of other jars.
+     */
+    public void visitEntries(File file, Set<String> packages, ZipCentralDirectory.EntryVisitor visitor) throws Exception {
+        byte[] buffer = new byte[8192];
+        visit(file, (jarPath, entry, in) -> {
+            String name = entry.getName();
+            int lastSlash = name.lastIndexOf('/');
+            if (lastSlash > 0 && packages.contains(name.substring(0, lastSlash).replace('/', '.'))) {
+                CRC32 crc = new CRC32();
+                long size = 0;
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    crc.update(buffer, 0, read);
+                    size += read;
+                }
+                visitor.visit(name, crc.getValue(), size);
+            }
+        });
+    }
+
+    private void visit(File file, EntryVisitor visitor) throws Exception {
+        List<String> nestedJars = ZipCentralDirectory.listEntries(file, JAR_SUFFIX);
+        if (nestedJars.isEmpty()) {
+            return;
+        }
+        try (ZipFile zipFile = new ZipFile(file)) {
+            for (String nestedJar : nestedJars) {
+                ZipEntry entry = zipFile.getEntry(nestedJar);
+                if (entry != null) {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        visitNested(nestedJar, in, 1, visitor);
+                    }
+                }
+            }
+        }
+    }
+
+    private void visitNested(String jarPath, InputStream in, int depth, EntryVisitor visitor) throws Exception {
+        // The nested stream must not close the stream of the enclosing jar, which is still being read
+        try (ZipInputStream nestedIn = new ZipInputStream(new BufferedInputStream(new FilterInputStream(in) {
+            @Override
+            public void close() {
+            }
+        }))) {
+            ZipEntry entry;
+            while ((entry = nestedIn.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                if (entry.getName().endsWith(JAR_SUFFIX) && depth < MAX_DEPTH) {
+                    visitNested(jarPath + "!/" + entry.getName(), nestedIn, depth + 1, visitor);
+                } else {
+                    visitor.visit(jarPath, entry, nestedIn);
+                }
+            }
+        } catch (ZipException e) {
+            skippedEntries.add(jarPath + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Reads the data of an entry, or returns null without buffering it if it exceeds the memory budget.
+     */
+    private byte[] readBounded(ZipEntry entry, InputStream in) throws IOException {
+        if (entry.getSize() > maxEntrySize) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(entry.getSize() > 0 ? (int) entry.getSize() : 8192);
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            total += read;
+            if (total > maxEntrySize) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent index of the packages contained in artifact files.
+ * Each entry is keyed by the absolute path of the file and is only considered valid as long as
+ * the size and last modification time of the file are unchanged, so that only new or modified
+ * jars need to be scanned again. The packages of an artifact include the ones of the jars nested in it.
+ *
+ * The index is stored in a compact binary format: a table of all distinct package names,
+ * followed by the entries referencing the packages by their position in the table.
+ *
+ * The index is shared by all the builds of a machine, so that it does not grow without bounds, the entries of
+ * the files that were deleted or modified since they were indexed are pruned whenever it is saved. The entries
+ * written by concurrent builds since the index was loaded are merged when saving, rather than overwritten.
+ */
+public class PackageIndex {
+
+    private static final int MAGIC = 0x4F534750; // "OSGP"
+    private static final int VERSION = 2;
+
+    private final File indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    public PackageIndex(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Returns the packages of a jar if the index holds an up-to-date entry for it, null otherwise.
+     */
+    public Set<String> getPackages(File jarFile) {
+        Entry entry = entries.get(jarFile.getAbsolutePath());
+        if (entry == null || !entry.isValid(jarFile)) {
+            return null;
+        }
+        return entry.packages;
+    }
+
+    public void putPackages(File jarFile, Set<String> packages) {
+        entries.put(jarFile.getAbsolutePath(),
+                new Entry(jarFile.length(), jarFile.lastModified(), Collections.unmodifiableSet(new TreeSet<>(packages))));
+        modified = true;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void load() throws IOException {
+        entries.clear();
+        modified = false;
+        read(entries);
+    }
+
+    /**
+     * Removes the entries of the files that no longer exist, or whose size or last modification time changed
+     * since they were indexed.
+     *
+     * @return the number of entries removed
+     */
+    public int prune() {
+        int previousSize = entries.size();
+        entries.entrySet().removeIf(entry -> !entry.getValue().isValid(new File(entry.getKey())));
+        int removedCount = previousSize - entries.size();
+        if (removedCount > 0) {
+            modified = true;
+        }
+        return removedCount;
+    }
+
+    private void read(Map<String, Entry> target) throws IOException {
+        if (!indexFile.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                // Unknown format, the index will simply be rebuilt
+                return;
+            }
+            String[] packageTable = new String[in.readInt()];
+            for (int i = 0; i < packageTable.length; i++) {
+                packageTable[i] = in.readUTF();
+            }
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                int packageCount = in.readInt();
+                Set<String> packages = new TreeSet<>();
+                for (int j = 0; j < packageCount; j++) {
+                    packages.add(packageTable[in.readInt()]);
+                }
+                target.put(path, new Entry(size, lastModified, Collections.unmodifiableSet(packages)));
+            }
+        }
+    }
+
+    /**
+     * Writes the index if it was modified since it was loaded. The entries saved in the meantime by concurrent
+     * builds are merged first, then the index is pruned. The index is written to a temporary file that then
+     * replaces the previous index, so that concurrent builds never read a partially written index.
+     */
+    public void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        Map<String, Entry> savedEntries = new HashMap<>();
+        try {
+            read(savedEntries);
+        } catch (IOException e) {
+            // The saved index is unreadable, it is simply replaced
+        }
+        for (Map.Entry<String, Entry> savedEntry : savedEntries.entrySet()) {
+            Entry entry = entries.get(savedEntry.getKey());
+            if (entry == null || !entry.isValid(new File(savedEntry.getKey()))) {
+                entries.put(savedEntry.getKey(), savedEntry.getValue());
+            }
+        }
+        prune();
+
+        File parent = indexFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+
+        Map<String, Integer> packageTable = new LinkedHashMap<>();
+        for (Entry entry : entries.values()) {
+            for (String packageName : entry.packages) {
+                packageTable.putIfAbsent(packageName, packageTable.size());
+            }
+        }
+
+        File tempFile = File.createTempFile(indexFile.getName(), ".tmp", parent);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(packageTable.size());
+                for (String packageName : packageTable.keySet()) {
+                    out.writeUTF(packageName);
+                }
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().size);
+                    out.writeLong(entry.getValue().lastModified);
+                    out.writeInt(entry.getValue().packages.size());
+                    for (String packageName : entry.getValue().packages) {
+                        out.writeInt(packageTable.get(packageName));
+                    }
+                }
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final Set<String> packages;
+
+        private Entry(long size, long lastModified, Set<String> packages) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.packages = packages;
+        }
+
+        private boolean isValid(File file) {
+            return size == file.length() && lastModified == file.lastModified();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches package names against a set of package patterns, following the BND conventions: {@code org.foo}
+ * only matches the {@code org.foo} package, {@code org.foo.*} matches {@code org.foo} and all its subpackages,
+ * and {@code *} matches every package. Matchers compiled with {@link #compileSubtrees} also match the subpackages
+ * of plain package names, which is how the goals searching for a package treat it.
+ * The patterns are compiled into a trie over the package segments, so that matching a package only walks its
+ * segments, whatever the number of patterns, and the result of each distinct package is remembered, as the
+ * same packages are referred to by many classes. Instances are thread-safe.
+ */
+public class PackageMatcher {
+
+    private static final String WILDCARD = "*";
+    private static final String SUBPACKAGES_SUFFIX = ".*";
+
+    private final Node root = new Node();
+    private final Map<String, List<String>> matchCache = new ConcurrentHashMap<>();
+
+    private PackageMatcher() {
+    }
+
+    /**
+     * Compiles a collection of patterns, each of which may also be a comma-separated list of patterns.
+     *
+     * @throws IllegalArgumentException if a pattern is not a package name, optionally followed by ".*"
+     */
+    public static PackageMatcher compile(Collection<String> patterns) {
+        return compile(patterns, false);
+    }
+
+    public static PackageMatcher compile(String... patterns) {
+        return compile(Arrays.asList(patterns));
+    }
+
+    /**
+     * Compiles patterns in which a package name also matches all its subpackages, as if it was followed by ".*".
+     * The matching patterns are still returned as they were given, so {@code org.foo} matches {@code org.foo.bar}
+     * as {@code org.foo}, while it still does not match {@code org.foobar}.
+     *
+     * @throws IllegalArgumentException if a pattern is not a package name, optionally followed by ".*"
+     */
+    public static PackageMatcher compileSubtrees(Collection<String> patterns) {
+        return compile(patterns, true);
+    }
+
+    public static PackageMatcher compileSubtrees(String... patterns) {
+        return compileSubtrees(Arrays.asList(patterns));
+    }
+
+    private static PackageMatcher compile(Collection<String> patterns, boolean subtrees) {
+        PackageMatcher matcher = new PackageMatcher();
+        for (String patternList : patterns) {
+            for (String pattern : patternList.split(",")) {
+                pattern = pattern.trim();
+                if (!pattern.isEmpty()) {
+                    matcher.add(pattern, subtrees);
+                }
+            }
+        }
+        if (matcher.root.children.isEmpty() && matcher.root.exactPatterns == null && matcher.root.subtreePatterns == null) {
+            throw new IllegalArgumentException("No package pattern given");
+        }
+        return matcher;
+    }
+
+    public boolean matches(String packageName) {
+        return !getMatchingPatterns(packageName).isEmpty();
+    }
+
+    /**
+     * Returns the patterns matching a package, the most general ones first, or an empty list if none matches.
+     */
+    public List<String> getMatchingPatterns(String packageName) {
+        List<String> matchingPatterns = matchCache.get(packageName);
+        if (matchingPatterns == null) {
+            matchingPatterns = match(packageName);
+            matchCache.put(packageName, matchingPatterns);
+        }
+        return matchingPatterns;
+    }
+
+    private List<String> match(String packageName) {
+        List<String> matchingPatterns = null;
+        Node node = root;
+        int start = 0;
+        while (node != null) {
+            if (node.subtreePatterns != null) {
+                matchingPatterns = append(matchingPatterns, node.subtreePatterns);
+            }
+            if (start > packageName.length()) {
+                if (node.exactPatterns != null) {
+                    matchingPatterns = append(matchingPatterns, node.exactPatterns);
+                }
+                break;
+            }
+            int end = packageName.indexOf('.', start);
+            if (end < 0) {
+                end = packageName.length();
+            }
+            node = node.children.get(packageName.substring(start, end));
+            start = end + 1;
+        }
+        return matchingPatterns == null ? Collections.emptyList() : Collections.unmodifiableList(matchingPatterns);
+    }
+
+    private static List<String> append(List<String> matchingPatterns, List<String> patterns) {
+        if (matchingPatterns == null) {
+            matchingPatterns = new ArrayList<>(patterns.size());
+        }
+        matchingPatterns.addAll(patterns);
+        return matchingPatterns;
+    }
+
+    private void add(String pattern, boolean subtrees) {
+        boolean wildcard = pattern.equals(WILDCARD) || pattern.endsWith(SUBPACKAGES_SUFFIX);
+        boolean subtree = subtrees || wildcard;
+        String packageName = pattern.equals(WILDCARD) ? ""
+                : wildcard ? pattern.substring(0, pattern.length() - SUBPACKAGES_SUFFIX.length()) : pattern;
+
+        Node node = root;
+        if (!packageName.isEmpty()) {
+            for (String segment : packageName.split("\\.", -1)) {
+                if (segment.isEmpty() || segment.contains(WILDCARD)) {
+                    throw new IllegalArgumentException("Invalid package pattern '" + pattern
+                            + "', expected a package name, optionally followed by .*");
+                }
+                node = node.children.computeIfAbsent(segment, k -> new Node());
+            }
+        } else if (!subtree) {
+            throw new IllegalArgumentException("Invalid package pattern '" + pattern + "'");
+        }
+
+        if (subtree) {
+            node.subtreePatterns = append(node.subtreePatterns, Collections.singletonList(pattern));
+        } else {
+            node.exactPatterns = append(node.exactPatterns, Collections.singletonList(pattern));
+        }
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private List<String> exactPatterns;
+        private List<String> subtreePatterns;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.util.*;
+
+/**
+ * A compact map from package names to the artifacts providing them, built in one pass over the contents of
+ * all the artifacts of a dependency graph.
+ * Every distinct package name is stored once and identified by its position in the package table, and the
+ * artifacts are identified by int ids given by the caller, so that each package only costs a small int array
+ * however many artifacts and entries the graph holds.
+ */
+public class PackageProviders {
+
+    private static final int[] NO_PROVIDERS = new int[0];
+
+    private final Map<String, Integer> packageIds = new HashMap<>();
+    private String[] packageNames = new String[256];
+    private int[][] providers = new int[256][];
+    private int[] providerCounts = new int[256];
+
+    /**
+     * Records that an artifact provides the given packages. Artifacts are expected to be added once each.
+     */
+    public void add(int artifactId, Collection<String> packages) {
+        for (String packageName : packages) {
+            int packageId = getOrCreatePackageId(packageName);
+            int[] packageProviders = providers[packageId];
+            int count = providerCounts[packageId];
+            if (packageProviders == null) {
+                packageProviders = new int[1];
+            } else if (count == packageProviders.length) {
+                packageProviders = Arrays.copyOf(packageProviders, count * 2);
+            }
+            packageProviders[count] = artifactId;
+            providers[packageId] = packageProviders;
+            providerCounts[packageId] = count + 1;
+        }
+    }
+
+    public int size() {
+        return packageIds.size();
+    }
+
+    /**
+     * Returns the ids of the artifacts providing a package, in the order they were added.
+     */
+    public int[] getProviders(String packageName) {
+        Integer packageId = packageIds.get(packageName);
+        return packageId == null ? NO_PROVIDERS : Arrays.copyOf(providers[packageId], providerCounts[packageId]);
+    }
+
+    /**
+     * Returns the packages provided by more than one artifact, sorted by name.
+     */
+    public SortedSet<String> getSplitPackages() {
+        SortedSet<String> splitPackages = new TreeSet<>();
+        for (int packageId = 0; packageId < packageIds.size(); packageId++) {
+            if (providerCounts[packageId] > 1) {
+                splitPackages.add(packageNames[packageId]);
+            }
+        }
+        return splitPackages;
+    }
+
+    private int getOrCreatePackageId(String packageName) {
+        Integer packageId = packageIds.get(packageName);
+        if (packageId != null) {
+            return packageId;
+        }
+        int newId = packageIds.size();
+        if (newId == packageNames.length) {
+            packageNames = Arrays.copyOf(packageNames, newId * 2);
+            providers = Arrays.copyOf(providers, newId * 2);
+            providerCounts = Arrays.copyOf(providerCounts, newId * 2);
+        }
+        packageNames[newId] = packageName;
+        packageIds.put(packageName, newId);
+        return newId;
+    }
+}
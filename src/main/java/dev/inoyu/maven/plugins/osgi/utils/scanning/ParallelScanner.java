@@ -0,0 +1,161 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a scan function over a collection of inputs on a bounded pool of worker threads.
+ * Results are returned in the iteration order of the inputs, whatever the order in which
+ * the workers complete, so that the output of the goals stays deterministic.
+ * Only a bounded number of inputs are scanned ahead of the one whose result is awaited, so that long input lists,
+ * such as all the jars of a distribution, do not pile up results that are not consumed yet.
+ */
+public class ParallelScanner {
+
+    /**
+     * The work done for a single input, typically opening and scanning one artifact file.
+     */
+    @FunctionalInterface
+    public interface Scan<K, T> {
+        T scan(K input) throws Exception;
+    }
+
+    /**
+     * The number of inputs, per worker thread, that may be scanned ahead of the result being awaited.
+     */
+    private static final int INPUTS_AHEAD_PER_THREAD = 4;
+
+    private final int threads;
+
+    /**
+     * @param threads the maximum number of worker threads, or a value lower than 1 to use
+     *                the number of available processors
+     */
+    public ParallelScanner(int threads) {
+        this.threads = threads < 1 ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Receives the result of each input, in the iteration order of the inputs.
+     */
+    @FunctionalInterface
+    public interface ResultConsumer<K, T> {
+        void accept(K input, T result) throws Exception;
+    }
+
+    /**
+     * Receives the result of each input, in the iteration order of the inputs, and tells whether the scan goes on.
+     */
+    @FunctionalInterface
+    public interface ResultPredicate<K, T> {
+        boolean accept(K input, T result) throws Exception;
+    }
+
+    public <K, T> Map<K, T> scanAll(Collection<K> inputs, Scan<K, T> scan) throws Exception {
+        Map<K, T> results = new LinkedHashMap<>();
+        scanInOrder(inputs, scan, results::put);
+        return results;
+    }
+
+    /**
+     * Scans the inputs in parallel but hands each result over as soon as it and all the results of the
+     * previous inputs are available, so that callers can report results while the scan is still running
+     * and do not need to keep all of them in memory.
+     */
+    public <K, T> void scanInOrder(Collection<K> inputs, Scan<K, T> scan, ResultConsumer<K, T> consumer) throws Exception {
+        scanInOrderWhile(inputs, scan, (input, result) -> {
+            consumer.accept(input, result);
+            return true;
+        });
+    }
+
+    /**
+     * Scans the inputs in parallel and hands each result over in the iteration order of the inputs, until the
+     * predicate returns false. All the outstanding work is then cancelled: the inputs not started yet are never
+     * scanned and the running scans are interrupted.
+     *
+     * @return true if all the inputs were scanned, false if the scan was stopped by the predicate
+     */
+    public <K, T> boolean scanInOrderWhile(Collection<K> inputs, Scan<K, T> scan, ResultPredicate<K, T> predicate) throws Exception {
+        if (threads == 1 || inputs.size() < 2) {
+            for (K input : inputs) {
+                if (!predicate.accept(input, scan.scan(input))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int poolSize = Math.min(threads, inputs.size());
+        ExecutorService executor = newExecutor(poolSize);
+        try {
+            Iterator<K> pendingInputs = inputs.iterator();
+            Deque<Map.Entry<K, Future<T>>> futures = new ArrayDeque<>();
+            while (futures.size() < poolSize * INPUTS_AHEAD_PER_THREAD && pendingInputs.hasNext()) {
+                submit(executor, pendingInputs.next(), scan, futures);
+            }
+            while (!futures.isEmpty()) {
+                Map.Entry<K, Future<T>> future = futures.poll();
+                T result = await(future.getValue());
+                if (pendingInputs.hasNext()) {
+                    submit(executor, pendingInputs.next(), scan, futures);
+                }
+                if (!predicate.accept(future.getKey(), result)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <K, T> void submit(ExecutorService executor, K input, Scan<K, T> scan,
+                                      Deque<Map.Entry<K, Future<T>>> futures) {
+        futures.add(new AbstractMap.SimpleImmutableEntry<>(input, executor.submit(() -> scan.scan(input))));
+    }
+
+    static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    static ExecutorService newExecutor(int poolSize) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "osgi-utils-scanner-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
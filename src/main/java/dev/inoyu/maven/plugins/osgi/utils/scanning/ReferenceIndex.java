@@ -0,0 +1,265 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent index of the packages referred to by each class of artifact files.
+ * The references of an artifact are stored in their own file, named after the SHA-1 checksum of the
+ * artifact and the engine that computed them, so that the same jar is only analyzed once whatever its
+ * location, and that a modified jar (such as a rebuilt snapshot) is never served stale references.
+ * The checksums are themselves remembered in a table keyed by the absolute path of the artifacts, along with their
+ * size and last modification time, so that an artifact is only hashed again when one of them changed, instead of
+ * reading every jar in full on every run. The table is shared by all the engines using the same directory.
+ *
+ * Each file uses a compact binary format: a table of all distinct package names, followed by the
+ * classes referencing the packages by their position in the table, written as variable length integers.
+ */
+public class ReferenceIndex {
+
+    private static final int MAGIC = 0x4F535552; // "OSUR"
+    private static final int VERSION = 1;
+    private static final int CHECKSUMS_MAGIC = 0x4F535553; // "OSUS"
+    private static final int CHECKSUMS_VERSION = 1;
+    private static final String CHECKSUMS_FILE_NAME = "checksums.idx";
+
+    private final File directory;
+    private final String engine;
+    private final Map<String, Checksum> checksums = new ConcurrentHashMap<>();
+    private boolean checksumsLoaded;
+    private volatile boolean checksumsModified;
+
+    public ReferenceIndex(File directory, String engine) {
+        this.directory = directory;
+        this.engine = engine;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the class references of an artifact if they were already indexed, null otherwise.
+     */
+    public ClassReferences get(File artifactFile) throws IOException {
+        File indexFile = getIndexFile(artifactFile);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                // Unknown format, the artifact will simply be analyzed again
+                return null;
+            }
+            String[] packageTable = new String[readVarInt(in)];
+            for (int i = 0; i < packageTable.length; i++) {
+                packageTable[i] = in.readUTF();
+            }
+            ClassReferences references = new ClassReferences();
+            int classCount = readVarInt(in);
+            for (int i = 0; i < classCount; i++) {
+                String className = in.readUTF();
+                int packageCount = readVarInt(in);
+                Set<String> packages = new LinkedHashSet<>();
+                for (int j = 0; j < packageCount; j++) {
+                    packages.add(packageTable[readVarInt(in)]);
+                }
+                references.add(className, packages);
+            }
+            return references;
+        }
+    }
+
+    /**
+     * Stores the class references of an artifact. The file is first written to a temporary file that then
+     * replaces any previous one, so that concurrent builds never read a partially written file.
+     */
+    public void put(File artifactFile, ClassReferences references) throws IOException {
+        File indexFile = getIndexFile(artifactFile);
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+
+        Map<String, Integer> packageTable = new LinkedHashMap<>();
+        for (Set<String> packages : references.getReferredPackages().values()) {
+            for (String packageName : packages) {
+                packageTable.putIfAbsent(packageName, packageTable.size());
+            }
+        }
+
+        File tempFile = File.createTempFile(indexFile.getName(), ".tmp", directory);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeVarInt(out, packageTable.size());
+                for (String packageName : packageTable.keySet()) {
+                    out.writeUTF(packageName);
+                }
+                writeVarInt(out, references.size());
+                for (Map.Entry<String, Set<String>> classReferences : references.getReferredPackages().entrySet()) {
+                    out.writeUTF(classReferences.getKey());
+                    writeVarInt(out, classReferences.getValue().size());
+                    for (String packageName : classReferences.getValue()) {
+                        writeVarInt(out, packageTable.get(packageName));
+                    }
+                }
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    private File getIndexFile(File artifactFile) throws IOException {
+        return new File(directory, getChecksum(artifactFile) + "-" + engine + ".refs");
+    }
+
+    /**
+     * Returns the SHA-1 checksum of an artifact, only computed if the artifact is not in the checksum table or if
+     * its size or last modification time changed since it was hashed.
+     */
+    String getChecksum(File artifactFile) throws IOException {
+        loadChecksums();
+        String path = artifactFile.getAbsolutePath();
+        long size = artifactFile.length();
+        long lastModified = artifactFile.lastModified();
+        Checksum checksum = checksums.get(path);
+        if (checksum == null || checksum.size != size || checksum.lastModified != lastModified) {
+            checksum = new Checksum(size, lastModified, sha1(artifactFile));
+            checksums.put(path, checksum);
+            checksumsModified = true;
+        }
+        return checksum.sha1;
+    }
+
+    private synchronized void loadChecksums() throws IOException {
+        if (checksumsLoaded) {
+            return;
+        }
+        checksumsLoaded = true;
+        File checksumsFile = new File(directory, CHECKSUMS_FILE_NAME);
+        if (!checksumsFile.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checksumsFile)))) {
+            if (in.readInt() != CHECKSUMS_MAGIC || in.readInt() != CHECKSUMS_VERSION) {
+                // Unknown format, the artifacts will simply be hashed again
+                return;
+            }
+            int entryCount = readVarInt(in);
+            for (int i = 0; i < entryCount; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                checksums.put(path, new Checksum(size, lastModified, in.readUTF()));
+            }
+        }
+    }
+
+    /**
+     * Writes the checksum table if checksums were computed since it was loaded, the same way as the references, so
+     * that concurrent builds never read a partially written table.
+     */
+    public void save() throws IOException {
+        if (!checksumsModified) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        File checksumsFile = new File(directory, CHECKSUMS_FILE_NAME);
+        File tempFile = File.createTempFile(CHECKSUMS_FILE_NAME, ".tmp", directory);
+        try {
+            Map<String, Checksum> snapshot = new TreeMap<>(checksums);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(CHECKSUMS_MAGIC);
+                out.writeInt(CHECKSUMS_VERSION);
+                writeVarInt(out, snapshot.size());
+                for (Map.Entry<String, Checksum> entry : snapshot.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().size);
+                    out.writeLong(entry.getValue().lastModified);
+                    out.writeUTF(entry.getValue().sha1);
+                }
+            }
+            Files.move(tempFile.toPath(), checksumsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            checksumsModified = false;
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    static String sha1(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 is not available", e);
+        }
+        byte[] buffer = new byte[65536];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder checksum = new StringBuilder(40);
+        for (byte b : digest.digest()) {
+            checksum.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return checksum.toString();
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid variable length integer");
+    }
+
+    private static class Checksum {
+        private final long size;
+        private final long lastModified;
+        private final String sha1;
+
+        private Checksum(long size, long lastModified, String sha1) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha1 = sha1;
+        }
+    }
+}
@@ -0,0 +1,637 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * A minimal reader for the central directory of a zip archive.
+ * Only the end of central directory record and the central directory itself are read, using
+ * positional reads, so listing the contents of a jar never touches the (much larger) entry data
+ * and never creates an object per entry. Single entries, such as the manifest, can also be read, only their
+ * local header and data being read from the file.
+ * Archives with data prepended to the zip content, such as self-extracting jars or executable scripts, are supported
+ * by shifting the recorded offsets by the size of the prepended data. The lengths recorded in the central directory
+ * are checked against its size, a corrupted archive being reported with a {@link ZipException}. The static methods
+ * then fall back to a {@link ZipFile}, for the archives this reader does not support.
+ */
+public class ZipCentralDirectory implements Closeable {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int CENTRAL_DIRECTORY_ENTRY_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56;
+    private static final int CENTRAL_DIRECTORY_ENTRY_SIZE = 46;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer centralDirectory;
+    private final int entryCount;
+    private final long prefixLength;
+
+    private ZipCentralDirectory(File file, FileChannel channel, ByteBuffer centralDirectory, int entryCount,
+                                long prefixLength) {
+        this.file = file;
+        this.channel = channel;
+        this.centralDirectory = centralDirectory;
+        this.entryCount = entryCount;
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * Receives the entries visited in the central directory, with the checksum and size recorded for their data.
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(String name, long crc, long size) throws IOException;
+    }
+
+    public static ZipCentralDirectory open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return read(file, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lists the distinct packages of all the (non-directory) entries of a jar file.
+     */
+    public static Set<String> listPackages(File file) throws IOException {
+        try (ZipCentralDirectory directory = open(file)) {
+            return directory.listPackages();
+        } catch (ZipException e) {
+            Set<String> packages = new TreeSet<>();
+            visitZipFileEntries(file, (name, crc, size) -> {
+                int lastSlash = name.lastIndexOf('/');
+                if (lastSlash > 0) {
+                    packages.add(name.substring(0, lastSlash).replace('/', '.'));
+                }
+            });
+            return packages;
+        }
+    }
+
+    /**
+     * Lists the distinct packages of the (non-directory) entries of a jar file that are in the given package or in
+     * one of its subpackages.
+     */
+    public static Set<String> listPackages(File file, String packageName) throws IOException {
+        try (ZipCentralDirectory directory = open(file)) {
+            return directory.listPackages(packageName);
+        } catch (ZipException e) {
+            String prefix = packageName.replace('.', '/') + "/";
+            Set<String> packages = new TreeSet<>();
+            visitZipFileEntries(file, (name, crc, size) -> {
+                if (name.startsWith(prefix)) {
+                    packages.add(name.substring(0, name.lastIndexOf('/')).replace('/', '.'));
+                }
+            });
+            return packages;
+        }
+    }
+
+    /**
+     * Returns the first package of a jar file that is the given package or one of its subpackages, or null if
+     * there is none, stopping at the first entry found.
+     */
+    public static String findPackage(File file, String packageName) throws IOException {
+        try (ZipCentralDirectory directory = open(file)) {
+            return directory.findPackage(packageName);
+        } catch (ZipException e) {
+            String prefix = packageName.replace('.', '/') + "/";
+            try (ZipFile zipFile = new ZipFile(file)) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (name.startsWith(prefix) && !name.endsWith("/")) {
+                        return name.substring(0, name.lastIndexOf('/')).replace('/', '.');
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Lists the names of the (non-directory) entries of a jar file ending with the given suffix, such as ".jar".
+     */
+    public static List<String> listEntries(File file, String suffix) throws IOException {
+        try (ZipCentralDirectory directory = open(file)) {
+            return directory.listEntries(suffix);
+        } catch (ZipException e) {
+            List<String> names = new ArrayList<>();
+            visitZipFileEntries(file, (name, crc, size) -> {
+                if (name.length() > suffix.length() && name.endsWith(suffix)) {
+                    names.add(name);
+                }
+            });
+            return names;
+        }
+    }
+
+    /**
+     * Visits the (non-directory) entries of a jar file stored directly in one of the given packages, with the
+     * checksum and size recorded for their data.
+     */
+    public static void visitEntries(File file, Set<String> packages, EntryVisitor visitor) throws IOException {
+        ZipCentralDirectory directory;
+        try {
+            directory = open(file);
+        } catch (ZipException e) {
+            visitZipFileEntries(file, (name, crc, size) -> {
+                int lastSlash = name.lastIndexOf('/');
+                if (lastSlash > 0 && packages.contains(name.substring(0, lastSlash).replace('/', '.'))) {
+                    visitor.visit(name, crc, size);
+                }
+            });
+            return;
+        }
+        // The fallback is only taken when opening, so that no entry is ever visited twice
+        try (ZipCentralDirectory openDirectory = directory) {
+            openDirectory.visitEntries(packages, visitor);
+        }
+    }
+
+    /**
+     * Visits the (non-directory) entries of a jar file through a {@link ZipFile}, for the archives this reader does
+     * not support.
+     */
+    private static void visitZipFileEntries(File file, EntryVisitor visitor) throws IOException {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    visitor.visit(entry.getName(), entry.getCrc(), entry.getSize());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the data of a single entry of a jar file, or returns null if the jar has no such entry.
+     */
+    public static byte[] readEntry(File file, String name) throws IOException {
+        try (ZipCentralDirectory directory = open(file)) {
+            return directory.readEntry(name);
+        } catch (ZipException e) {
+            try (ZipFile zipFile = new ZipFile(file)) {
+                ZipEntry entry = zipFile.getEntry(name);
+                if (entry == null) {
+                    return null;
+                }
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    return in.readAllBytes();
+                }
+            }
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public Set<String> listPackages() throws ZipException {
+        Set<String> packages = new TreeSet<>();
+        byte[] data = centralDirectory.array();
+        int base = centralDirectory.arrayOffset();
+        int previousOffset = -1;
+        int previousLength = -1;
+
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int nameLength = nameLength(position);
+            int nameOffset = base + position + CENTRAL_DIRECTORY_ENTRY_SIZE;
+            int lastSlash = lastSlash(data, nameOffset, nameLength);
+
+            // Entries of a package are usually stored together, so only decode a name when the package changes
+            if (lastSlash > 0 && lastSlash < nameLength - 1
+                    && !regionEquals(data, nameOffset, lastSlash, previousOffset, previousLength)) {
+                packages.add(new String(data, nameOffset, lastSlash, StandardCharsets.UTF_8).replace('/', '.'));
+                previousOffset = nameOffset;
+                previousLength = lastSlash;
+            }
+            position = nextEntry(position);
+        }
+        return packages;
+    }
+
+    public List<String> listEntries(String suffix) throws ZipException {
+        byte[] suffixBytes = suffix.getBytes(StandardCharsets.UTF_8);
+        byte[] data = centralDirectory.array();
+        int base = centralDirectory.arrayOffset();
+        List<String> names = new ArrayList<>();
+
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int nameLength = nameLength(position);
+            int nameOffset = base + position + CENTRAL_DIRECTORY_ENTRY_SIZE;
+            // Only the names ending with the suffix are decoded
+            if (nameLength > suffixBytes.length
+                    && regionEquals(data, nameOffset + nameLength - suffixBytes.length, suffixBytes.length, suffixBytes)) {
+                names.add(new String(data, nameOffset, nameLength, StandardCharsets.UTF_8));
+            }
+            position = nextEntry(position);
+        }
+        return names;
+    }
+
+    /**
+     * Returns the first package found among the given package and its subpackages, or null if there is none.
+     * The scan stops at the first entry of the package, and the entries before it are only compared with its path.
+     */
+    public String findPackage(String packageName) throws ZipException {
+        byte[] prefix = (packageName.replace('.', '/') + "/").getBytes(StandardCharsets.UTF_8);
+        byte[] data = centralDirectory.array();
+        int base = centralDirectory.arrayOffset();
+
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int nameLength = nameLength(position);
+            int nameOffset = base + position + CENTRAL_DIRECTORY_ENTRY_SIZE;
+            if (nameLength > prefix.length && data[nameOffset + nameLength - 1] != '/'
+                    && regionEquals(data, nameOffset, prefix.length, prefix)) {
+                int lastSlash = lastSlash(data, nameOffset, nameLength);
+                return new String(data, nameOffset, lastSlash, StandardCharsets.UTF_8).replace('/', '.');
+            }
+            position = nextEntry(position);
+        }
+        return null;
+    }
+
+    /**
+     * Lists the packages of the given package and its subpackages. The entries outside of the package are only
+     * compared with its path, without decoding their names.
+     */
+    public Set<String> listPackages(String packageName) throws ZipException {
+        Set<String> packages = new TreeSet<>();
+        byte[] prefix = (packageName.replace('.', '/') + "/").getBytes(StandardCharsets.UTF_8);
+        byte[] data = centralDirectory.array();
+        int base = centralDirectory.arrayOffset();
+        int previousOffset = -1;
+        int previousLength = -1;
+
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int nameLength = nameLength(position);
+            int nameOffset = base + position + CENTRAL_DIRECTORY_ENTRY_SIZE;
+            if (nameLength > prefix.length && data[nameOffset + nameLength - 1] != '/'
+                    && regionEquals(data, nameOffset, prefix.length, prefix)) {
+                int lastSlash = lastSlash(data, nameOffset, nameLength);
+                if (!regionEquals(data, nameOffset, lastSlash, previousOffset, previousLength)) {
+                    packages.add(new String(data, nameOffset, lastSlash, StandardCharsets.UTF_8).replace('/', '.'));
+                    previousOffset = nameOffset;
+                    previousLength = lastSlash;
+                }
+            }
+            position = nextEntry(position);
+        }
+        return packages;
+    }
+
+    /**
+     * Visits the (non-directory) entries stored directly in one of the given packages. Only the names of those
+     * entries are decoded, and their checksums are the CRC-32 recorded by the zip writer, so the entry data is
+     * never read.
+     */
+    public void visitEntries(Set<String> packages, EntryVisitor visitor) throws IOException {
+        byte[] data = centralDirectory.array();
+        int base = centralDirectory.arrayOffset();
+        int previousOffset = -1;
+        int previousLength = -1;
+        boolean previousMatched = false;
+
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int nameLength = nameLength(position);
+            int nameOffset = base + position + CENTRAL_DIRECTORY_ENTRY_SIZE;
+            int lastSlash = lastSlash(data, nameOffset, nameLength);
+
+            if (lastSlash > 0 && lastSlash < nameLength - 1) {
+                if (!regionEquals(data, nameOffset, lastSlash, previousOffset, previousLength)) {
+                    previousMatched = packages.contains(
+                            new String(data, nameOffset, lastSlash, StandardCharsets.UTF_8).replace('/', '.'));
+                    previousOffset = nameOffset;
+                    previousLength = lastSlash;
+                }
+                if (previousMatched) {
+                    visitor.visit(new String(data, nameOffset, nameLength, StandardCharsets.UTF_8),
+                            Integer.toUnsignedLong(centralDirectory.getInt(position + 16)),
+                            Integer.toUnsignedLong(centralDirectory.getInt(position + 24)));
+                }
+            }
+            position = nextEntry(position);
+        }
+    }
+
+    /**
+     * Reads the data of an entry, inflating it if needed, or returns null if there is no entry with that name.
+     * Only the local header and the data of the entry are read from the file.
+     */
+    public byte[] readEntry(String name) throws IOException {
+        return readEntry(name, false);
+    }
+
+    /**
+     * Reads the data of an entry like {@link #readEntry(String)}, an entry whose name only differs by the case of
+     * its ASCII letters being read when there is no exact match, as {@link java.util.jar.JarFile} does for the
+     * manifest.
+     */
+    public byte[] readEntryIgnoreCase(String name) throws IOException {
+        return readEntry(name, true);
+    }
+
+    private byte[] readEntry(String name, boolean ignoreCase) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] data = centralDirectory.array();
+        int base = centralDirectory.arrayOffset();
+        int caseInsensitiveMatch = -1;
+
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int nameLength = nameLength(position);
+            int nameOffset = base + position + CENTRAL_DIRECTORY_ENTRY_SIZE;
+            if (nameLength == nameBytes.length) {
+                if (regionEquals(data, nameOffset, nameLength, nameBytes)) {
+                    return readEntryData(position, name);
+                }
+                if (ignoreCase && caseInsensitiveMatch < 0 && regionEqualsIgnoreCase(data, nameOffset, nameLength, nameBytes)) {
+                    caseInsensitiveMatch = position;
+                }
+            }
+            position = nextEntry(position);
+        }
+        return caseInsensitiveMatch >= 0 ? readEntryData(caseInsensitiveMatch, name) : null;
+    }
+
+    private byte[] readEntryData(int position, String name) throws IOException {
+        int method = Short.toUnsignedInt(centralDirectory.getShort(position + 10));
+        long compressedSize = Integer.toUnsignedLong(centralDirectory.getInt(position + 20));
+        long size = Integer.toUnsignedLong(centralDirectory.getInt(position + 24));
+        long recordedOffset = Integer.toUnsignedLong(centralDirectory.getInt(position + 42));
+        // Sizes and offsets moved to the zip64 extra field are not supported, entries that large are not read here
+        if (compressedSize > Integer.MAX_VALUE || size > Integer.MAX_VALUE || recordedOffset == 0xFFFFFFFFL) {
+            throw new ZipException("Unsupported zip64 entry " + name + " in " + file);
+        }
+
+        long localHeaderOffset = recordedOffset + prefixLength;
+        long fileSize = channel.size();
+        if (localHeaderOffset + LOCAL_HEADER_SIZE > fileSize) {
+            throw new ZipException("Invalid local header offset for entry " + name + " in " + file);
+        }
+        ByteBuffer localHeader = readFully(channel, localHeaderOffset, LOCAL_HEADER_SIZE);
+        if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header for entry " + name + " in " + file);
+        }
+        // The local header may have a different extra field than the central directory entry
+        long dataOffset = localHeaderOffset + LOCAL_HEADER_SIZE
+                + Short.toUnsignedInt(localHeader.getShort(26)) + Short.toUnsignedInt(localHeader.getShort(28));
+        if (dataOffset + compressedSize > fileSize) {
+            throw new ZipException("Truncated entry " + name + " in " + file);
+        }
+        ByteBuffer compressed = readFully(channel, dataOffset, (int) compressedSize);
+
+        if (method == STORED) {
+            return compressed.array();
+        }
+        if (method != DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + " for entry " + name + " in " + file);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array(), 0, (int) compressedSize);
+            byte[] inflated = new byte[(int) size];
+            int length = 0;
+            while (length < inflated.length && !inflater.finished()) {
+                int read = inflater.inflate(inflated, length, inflated.length - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != inflated.length) {
+                throw new ZipException("Truncated entry " + name + " in " + file);
+            }
+            return inflated;
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid compressed data for entry " + name + " in " + file + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns the length of the name of the entry at the given position, checking that the entry, with its name,
+     * extra field and comment, lies within the central directory.
+     */
+    private int nameLength(int position) throws ZipException {
+        return nameLength(file, centralDirectory, position);
+    }
+
+    private static int nameLength(File file, ByteBuffer centralDirectory, int position) throws ZipException {
+        if (position + CENTRAL_DIRECTORY_ENTRY_SIZE > centralDirectory.limit()
+                || centralDirectory.getInt(position) != CENTRAL_DIRECTORY_ENTRY_SIGNATURE) {
+            throw new ZipException("Invalid central directory entry in " + file);
+        }
+        if (nextEntry(centralDirectory, position) > centralDirectory.limit()) {
+            throw new ZipException("Central directory entry exceeding the central directory in " + file);
+        }
+        return Short.toUnsignedInt(centralDirectory.getShort(position + 28));
+    }
+
+    private int nextEntry(int position) {
+        return nextEntry(centralDirectory, position);
+    }
+
+    private static int nextEntry(ByteBuffer centralDirectory, int position) {
+        return position + CENTRAL_DIRECTORY_ENTRY_SIZE
+                + Short.toUnsignedInt(centralDirectory.getShort(position + 28))
+                + Short.toUnsignedInt(centralDirectory.getShort(position + 30))
+                + Short.toUnsignedInt(centralDirectory.getShort(position + 32));
+    }
+
+    private static int lastSlash(byte[] data, int offset, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (data[offset + i] == '/') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(byte[] data, int offset, int length, int otherOffset, int otherLength) {
+        if (length != otherLength) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[offset + i] != data[otherOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(byte[] data, int offset, int length, byte[] other) {
+        for (int i = 0; i < length; i++) {
+            if (data[offset + i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEqualsIgnoreCase(byte[] data, int offset, int length, byte[] other) {
+        for (int i = 0; i < length; i++) {
+            if (toLowerCase(data[offset + i]) != toLowerCase(other[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static ZipCentralDirectory read(File file, FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < END_OF_CENTRAL_DIRECTORY_SIZE) {
+            throw new ZipException("Not a zip file: " + file);
+        }
+
+        // The end of central directory record is followed by a comment of at most 64KB
+        int tailSize = (int) Math.min(fileSize, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+        long tailPosition = fileSize - tailSize;
+        ByteBuffer tail = readFully(channel, tailPosition, tailSize);
+
+        int eocd = -1;
+        for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new ZipException("No end of central directory record found in " + file);
+        }
+
+        long entryCount = Short.toUnsignedInt(tail.getShort(eocd + 10));
+        long directorySize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+        long directoryOffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+        // The central directory ends where the end of central directory record, or the zip64 one, starts
+        long directoryEnd = tailPosition + eocd;
+
+        if (entryCount == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) {
+            long locatorPosition = tailPosition + eocd - ZIP64_LOCATOR_SIZE;
+            if (locatorPosition >= 0) {
+                ByteBuffer locator = readFully(channel, locatorPosition, ZIP64_LOCATOR_SIZE);
+                if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                    directoryEnd = findZip64Record(file, channel, locator.getLong(8), locatorPosition);
+                    ByteBuffer zip64 = readFully(channel, directoryEnd, ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE);
+                    entryCount = zip64.getLong(32);
+                    directorySize = zip64.getLong(40);
+                    directoryOffset = zip64.getLong(48);
+                }
+            }
+        }
+
+        if (directorySize > Integer.MAX_VALUE || entryCount > Integer.MAX_VALUE || directorySize < 0
+                || directoryOffset < 0 || entryCount * CENTRAL_DIRECTORY_ENTRY_SIZE > directorySize) {
+            throw new ZipException("Unsupported or corrupted central directory in " + file);
+        }
+        // The offsets are recorded from the start of the zip content, which follows any prepended data
+        long prefixLength = directoryEnd - (directoryOffset + directorySize);
+        if (prefixLength < 0) {
+            throw new ZipException("Central directory exceeding the archive in " + file);
+        }
+
+        ByteBuffer centralDirectory = readFully(channel, directoryOffset + prefixLength, (int) directorySize);
+        // All the entries are checked once, so that no corrupted entry is found after some were already visited
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            nameLength(file, centralDirectory, position);
+            position = nextEntry(centralDirectory, position);
+        }
+        return new ZipCentralDirectory(file, channel, centralDirectory, (int) entryCount, prefixLength);
+    }
+
+    /**
+     * Returns the position of the zip64 end of central directory record, either at its recorded offset, or right
+     * before its locator when data was prepended to the archive, which shifts the recorded offset.
+     */
+    private static long findZip64Record(File file, FileChannel channel, long recordedPosition, long locatorPosition)
+            throws IOException {
+        long[] candidates = {recordedPosition, locatorPosition - ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE};
+        for (long candidate : candidates) {
+            if (candidate >= 0 && candidate + ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE <= locatorPosition
+                    && readFully(channel, candidate, 4).getInt(0) == ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return candidate;
+            }
+        }
+        throw new ZipException("Invalid zip64 end of central directory record in " + file);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
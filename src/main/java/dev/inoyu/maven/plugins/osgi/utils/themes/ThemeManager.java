@@ -23,6 +23,10 @@ public class ThemeManager {
 
     private static boolean isDarkMode = false; // Default to dark mode
 
+    // The escape sequences of each role in dark and light mode, computed once instead of building Ansi objects per text
+    private static final Map<Role, String[]> ESCAPE_SEQUENCES = new EnumMap<>(Role.class);
+    private static final String RESET = new Ansi().reset().toString();
+
     static {
         // Define dark mode and light mode colors for each role
         THEMES.put(Role.HEADER, new Ansi.Color[]{Ansi.Color.YELLOW, Ansi.Color.BLUE});
@@ -33,6 +37,11 @@ public class ThemeManager {
         THEMES.put(Role.DETAIL, new Ansi.Color[]{Ansi.Color.CYAN, Ansi.Color.BLUE});
         THEMES.put(Role.DEPENDENCY, new Ansi.Color[]{Ansi.Color.MAGENTA, Ansi.Color.CYAN});
         THEMES.put(Role.ERROR, new Ansi.Color[]{Ansi.Color.RED, Ansi.Color.MAGENTA});
+        for (Map.Entry<Role, Ansi.Color[]> theme : THEMES.entrySet()) {
+            Ansi.Color[] colors = theme.getValue();
+            ESCAPE_SEQUENCES.put(theme.getKey(), new String[]{
+                    new Ansi().fgBright(colors[0]).toString(), new Ansi().fg(colors[1]).toString()});
+        }
 
         String theme = ThemeDetector.detectOSTheme();
         if (System.getProperty("theme") != null) {
@@ -48,7 +57,14 @@ public class ThemeManager {
     }
 
     public static ColorBuilder builder() {
-        return new ColorBuilder();
+        return new ColorBuilder(new StringBuilder());
+    }
+
+    /**
+     * Returns a builder appending to the given buffer, so that a single buffer can be reused to format many texts.
+     */
+    public static ColorBuilder builder(StringBuilder buffer) {
+        return new ColorBuilder(buffer);
     }
 
     private static Ansi color(Role role) {
@@ -58,13 +74,54 @@ public class ThemeManager {
     }
 
     public static class ColorBuilder {
-        private final StringBuilder builder = new StringBuilder();
+        private final StringBuilder builder;
+
+        private ColorBuilder(StringBuilder builder) {
+            this.builder = builder;
+        }
 
         public ColorBuilder add(Role role, String text) {
             builder.append(color(role).a(text).reset().toString());
             return this;
         }
 
+        /**
+         * Starts a text of the given role, to be appended piece by piece until {@link #end()}, without creating
+         * any intermediate object.
+         */
+        public ColorBuilder begin(Role role) {
+            String[] escapeSequences = ESCAPE_SEQUENCES.get(role);
+            if (escapeSequences != null && Ansi.isEnabled()) {
+                builder.append(escapeSequences[isDarkMode ? 0 : 1]);
+            }
+            return this;
+        }
+
+        public ColorBuilder append(String text) {
+            builder.append(text);
+            return this;
+        }
+
+        public ColorBuilder append(char c) {
+            builder.append(c);
+            return this;
+        }
+
+        public ColorBuilder end() {
+            if (Ansi.isEnabled()) {
+                builder.append(RESET);
+            }
+            return this;
+        }
+
+        /**
+         * Clears the buffer, keeping its capacity for the next text.
+         */
+        public ColorBuilder clear() {
+            builder.setLength(0);
+            return this;
+        }
+
         public String build() {
             return builder.toString();
         }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.mojos;
+
+import org.apache.maven.it.Verifier;
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+public class AggregateIT extends AbstractMojoTestCase {
+
+    private static final String MODULE_A = "dev.inoyu.test:aggregate-module-a:1.0-SNAPSHOT";
+    private static final String MODULE_B = "dev.inoyu.test:aggregate-module-b:1.0-SNAPSHOT";
+
+    public void testLocatePackageAggregate() throws Exception {
+        Verifier verifier = newVerifier();
+
+        verifier.setSystemProperty("packages", "org.osgi.framework,org.osgi.service.cm,com.example.modulea");
+        verifier.executeGoals(Arrays.asList("compile", "dev.inoyu:osgi-utils-maven-plugin:locate-package-aggregate"));
+
+        verifier.verifyErrorFreeLog();
+        verifier.verifyTextInLog("Packages found: ");
+        List<String> lines = loadLog(verifier);
+        // The classes of module-a are only reported once, as its own classes, even though module-b depends on it
+        assertLineCount(lines, "Project classes of " + MODULE_A, 1);
+        assertLineCount(lines, "Dependency: " + MODULE_A, 0);
+        assertTrailRoot(lines, "Dependency: org.osgi:org.osgi.core:6.0.0", MODULE_A);
+        assertTrailRoot(lines, "Dependency: org.osgi:osgi.cmpn:6.0.0", MODULE_B);
+
+        verifier.resetStreams();
+    }
+
+    public void testFindPackageUsagesAggregate() throws Exception {
+        Verifier verifier = newVerifier();
+
+        verifier.setSystemProperty("package", "org.osgi.framework");
+        verifier.setSystemProperty("summary", "true");
+        verifier.executeGoals(Arrays.asList("compile", "dev.inoyu:osgi-utils-maven-plugin:find-package-usages-aggregate"));
+
+        verifier.verifyErrorFreeLog();
+        List<String> lines = loadLog(verifier);
+        assertLineCount(lines, "Project classes of " + MODULE_A, 1);
+        assertLineCount(lines, "Project classes of " + MODULE_B, 0);
+        assertTrailRoot(lines, "Dependency: org.osgi:osgi.cmpn:6.0.0", MODULE_B);
+
+        verifier.resetStreams();
+    }
+
+    private Verifier newVerifier() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/aggregate-test");
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+        return verifier;
+    }
+
+    private static List<String> loadLog(Verifier verifier) throws Exception {
+        return verifier.loadFile(verifier.getBasedir(), verifier.getLogFileName(), false);
+    }
+
+    private static void assertLineCount(List<String> lines, String text, int expectedCount) {
+        int count = 0;
+        for (String line : lines) {
+            if (line.contains(text)) {
+                count++;
+            }
+        }
+        assertEquals("Lines containing " + text, expectedCount, count);
+    }
+
+    /**
+     * Checks that the first trail printed after a location starts with the expected module.
+     */
+    private static void assertTrailRoot(List<String> lines, String location, String module) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).contains(location)) {
+                for (int j = i + 1; j < lines.size(); j++) {
+                    if (lines.get(j).contains("Dependency trail:")) {
+                        assertTrue("Trail of " + location + " should start with " + module,
+                                j + 1 < lines.size() && lines.get(j + 1).contains(module));
+                        return;
+                    }
+                }
+            }
+        }
+        fail(location + " was not reported");
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.mojos;
+
+import org.apache.maven.it.VerificationException;
+import org.apache.maven.it.Verifier;
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+public class CheckWiringIT extends AbstractMojoTestCase {
+
+    public void testCheckWiring() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/view-manifest-test");
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:check-wiring");
+
+        verifier.verifyErrorFreeLog();
+        verifier.verifyTextInLog("Resolved ");
+        verifier.verifyTextInLog(" exported packages");
+
+        verifier.resetStreams();
+    }
+
+    /**
+     * Reproduces docs/demo/deployment-error.txt: the persistence bundle imports android.os, which no bundle exports.
+     */
+    public void testCheckWiringDeploymentError() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/view-manifest-test");
+        File bundlesDir = writeDeploymentBundles(testProjectDir);
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+        verifier.setSystemProperty("jars", bundlesDir.getAbsolutePath());
+        verifier.setSystemProperty("systemPackages", "org.osgi.framework;version=1.10");
+
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:check-wiring");
+
+        verifier.verifyErrorFreeLog();
+        verifier.verifyTextInLog("Unresolved bundle: ");
+        verifier.verifyTextInLog("org.apache.unomi.persistence-opensearch-core/2.6.0.SNAPSHOT");
+        verifier.verifyTextInLog("Missing package: ");
+        verifier.verifyTextInLog("android.os");
+        verifier.verifyTextInLog("not exported by any bundle");
+        // The bundle importing from the persistence bundle does not resolve either
+        verifier.verifyTextInLog("org.apache.unomi.services/2.6.0.SNAPSHOT");
+        verifier.verifyTextInLog("only exported by unresolved bundles");
+
+        verifier.resetStreams();
+    }
+
+    public void testCheckWiringFailOnUnresolved() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/view-manifest-test");
+        File bundlesDir = writeDeploymentBundles(testProjectDir);
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+        verifier.setSystemProperty("jars", bundlesDir.getAbsolutePath());
+        verifier.setSystemProperty("systemPackages", "org.osgi.framework;version=1.10");
+        verifier.setSystemProperty("failOnUnresolved", "true");
+
+        try {
+            verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:check-wiring");
+            fail("The build should fail when a bundle cannot be resolved");
+        } catch (VerificationException e) {
+            // Expected
+        }
+        verifier.verifyTextInLog("2 bundles cannot be resolved");
+
+        verifier.resetStreams();
+    }
+
+    private static File writeDeploymentBundles(File testProjectDir) throws Exception {
+        File bundlesDir = new File(testProjectDir, "check-wiring/deployment-error");
+        writeBundle(new File(bundlesDir, "persistence-opensearch-core.jar"),
+                "org.apache.unomi.persistence-opensearch-core", "org.apache.unomi.persistence.spi;version=2.6.0",
+                "android.os,org.osgi.framework;version=\"[1.8,2)\"");
+        writeBundle(new File(bundlesDir, "services.jar"), "org.apache.unomi.services", null,
+                "org.apache.unomi.persistence.spi;version=\"[2.6,3)\",org.osgi.framework;version=\"[1.8,2)\"");
+        writeBundle(new File(bundlesDir, "api.jar"), "org.apache.unomi.api", "org.apache.unomi.api;version=2.6.0",
+                "org.osgi.framework;version=\"[1.8,2)\"");
+        return bundlesDir;
+    }
+
+    private static void writeBundle(File jar, String symbolicName, String exports, String imports) throws Exception {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Bundle-ManifestVersion", "2");
+        attributes.putValue("Bundle-SymbolicName", symbolicName);
+        attributes.putValue("Bundle-Version", "2.6.0.SNAPSHOT");
+        if (exports != null) {
+            attributes.putValue("Export-Package", exports);
+        }
+        attributes.putValue("Import-Package", imports);
+        jar.getParentFile().mkdirs();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            out.finish();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.mojos;
+
+import aQute.bnd.osgi.Analyzer;
+import aQute.bnd.osgi.Clazz;
+import aQute.bnd.osgi.Descriptors;
+import aQute.bnd.osgi.Jar;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ClassReferences;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.ConstantPoolScanner;
+import org.apache.maven.it.Verifier;
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Validates the constant-pool engine against BND: for every class of the IT project and of all its dependency jars,
+ * the packages referred to must be exactly the ones returned by {@link Clazz#getReferred()}.
+ */
+public class ConstantPoolEngineIT extends AbstractMojoTestCase {
+
+    public void testConstantPoolEngineMatchesBnd() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/find-package-usages-test");
+        File classpathFile = new File(testProjectDir, "target/classpath.txt");
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+        verifier.setSystemProperty("mdep.outputFile", classpathFile.getAbsolutePath());
+        verifier.executeGoals(Arrays.asList("compile",
+                "org.apache.maven.plugins:maven-dependency-plugin:3.6.1:build-classpath"));
+        verifier.verifyErrorFreeLog();
+        verifier.resetStreams();
+
+        List<File> locations = new ArrayList<>();
+        locations.add(new File(testProjectDir, "target/classes"));
+        String classpath = new String(Files.readAllBytes(classpathFile.toPath()), StandardCharsets.UTF_8).trim();
+        for (String path : classpath.split(File.pathSeparator)) {
+            if (!path.isEmpty()) {
+                locations.add(new File(path));
+            }
+        }
+        assertTrue("The IT project should have dependency jars: " + classpath, locations.size() > 1);
+
+        int classCount = 0;
+        for (File location : locations) {
+            Map<String, Set<String>> bndReferences = analyzeWithBnd(location);
+            Map<String, Set<String>> constantPoolReferences = analyzeWithConstantPool(location);
+
+            assertEquals("Classes of " + location, bndReferences.keySet(), constantPoolReferences.keySet());
+            for (Map.Entry<String, Set<String>> classReferences : bndReferences.entrySet()) {
+                assertEquals("Packages referred to by " + classReferences.getKey() + " in " + location,
+                        classReferences.getValue(), constantPoolReferences.get(classReferences.getKey()));
+            }
+            classCount += bndReferences.size();
+        }
+        assertTrue("No class was compared", classCount > 0);
+    }
+
+    /**
+     * Analyzes a location the way the BND engine of find-package-usages does.
+     */
+    private static Map<String, Set<String>> analyzeWithBnd(File location) throws Exception {
+        Map<String, Set<String>> references = new TreeMap<>();
+        try (Jar jar = new Jar(location); Analyzer analyzer = new Analyzer()) {
+            analyzer.setJar(jar);
+            analyzer.analyze();
+            for (Clazz clazz : analyzer.getClassspace().values()) {
+                Set<String> referredPackages = new TreeSet<>();
+                for (Descriptors.PackageRef ref : clazz.getReferred()) {
+                    referredPackages.add(ref.getFQN());
+                }
+                references.put(clazz.getClassName().getFQN(), referredPackages);
+            }
+        }
+        return references;
+    }
+
+    private static Map<String, Set<String>> analyzeWithConstantPool(File location) throws Exception {
+        ClassReferences classReferences = new ConstantPoolScanner().scan(location);
+        Map<String, Set<String>> references = new TreeMap<>();
+        for (Map.Entry<String, Set<String>> entry : classReferences.getReferredPackages().entrySet()) {
+            references.put(entry.getKey(), new TreeSet<>(entry.getValue()));
+        }
+        return references;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.mojos;
+
+import org.apache.maven.it.Verifier;
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+public class DiffManifestIT extends AbstractMojoTestCase {
+
+    public void testDiffManifestWithItself() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/view-manifest-test");
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+        verifier.setSystemProperty("baseline", new File(testProjectDir, "target").getAbsolutePath());
+
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:diff-manifest");
+
+        verifier.verifyErrorFreeLog();
+        verifier.verifyTextInLog("Bundles changed: ");
+        verifier.verifyTextInLog(", unchanged: ");
+
+        verifier.resetStreams();
+    }
+
+    public void testDiffManifestWithSeveralVersions() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/view-manifest-test");
+        File baselineDir = new File(testProjectDir, "diff-versions/baseline");
+        File currentDir = new File(testProjectDir, "diff-versions/current");
+        String imports = "org.osgi.framework;version=\"[1.8,2)\"";
+        writeBundle(new File(baselineDir, "multi-1.0.0.jar"), "1.0.0", imports);
+        writeBundle(new File(baselineDir, "multi-2.0.0.jar"), "2.0.0", imports);
+        writeBundle(new File(currentDir, "multi-1.0.1.jar"), "1.0.1", imports);
+        writeBundle(new File(currentDir, "multi-2.1.0.jar"), "2.1.0", imports + ",org.osgi.service.cm");
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+        verifier.setSystemProperty("baseline", baselineDir.getAbsolutePath());
+        verifier.setSystemProperty("current", currentDir.getAbsolutePath());
+
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:diff-manifest");
+
+        verifier.verifyErrorFreeLog();
+        // Each major version is compared with its counterpart, none of them being ignored, added or removed
+        verifier.verifyTextInLog(" 2.0.0 → 2.1.0");
+        verifier.verifyTextInLog("+ org.osgi.service.cm");
+        List<String> lines = verifier.loadFile(verifier.getBasedir(), verifier.getLogFileName(), false);
+        for (String line : lines) {
+            assertFalse("Unexpected line: " + line, line.contains("found twice") || line.contains(" 1.0.0 → 1.0.1")
+                    || line.contains("Added bundle") || line.contains("Removed bundle"));
+        }
+
+        verifier.resetStreams();
+    }
+
+    private static void writeBundle(File jar, String version, String imports) throws Exception {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Bundle-ManifestVersion", "2");
+        attributes.putValue("Bundle-SymbolicName", "com.example.multi");
+        attributes.putValue("Bundle-Version", version);
+        attributes.putValue("Import-Package", imports);
+        jar.getParentFile().mkdirs();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            out.finish();
+        }
+    }
+}
@@ -19,6 +19,8 @@ import org.apache.maven.it.Verifier;
 import org.apache.maven.plugin.testing.AbstractMojoTestCase;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 public class FindPackageUsagesIT extends AbstractMojoTestCase {
 
@@ -36,4 +38,56 @@ public class FindPackageUsagesIT extends AbstractMojoTestCase {
 
         verifier.resetStreams();
     }
+
+    public void testFindPackageUsagesWithConstantPoolEngine() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/find-package-usages-test");
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+
+        verifier.setSystemProperty("package", "org.osgi.framework");
+        verifier.setSystemProperty("engine", "constant-pool");
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:find-package-usages");
+
+        verifier.verifyErrorFreeLog();
+        verifier.verifyTextInLog("Usage found in Dependency: org.osgi:org.osgi.core");
+
+        verifier.resetStreams();
+    }
+
+    public void testFindPackageUsagesSummary() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/find-package-usages-test");
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+
+        verifier.setSystemProperty("package", "org.osgi.framework");
+        verifier.setSystemProperty("summary", "true");
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:find-package-usages");
+
+        verifier.verifyErrorFreeLog();
+        verifier.verifyTextInLog("Usage found in Dependency: org.osgi:org.osgi.core");
+        verifier.verifyTextInLog("usages of org.osgi.framework in");
+
+        verifier.resetStreams();
+    }
+
+    public void testFindPackageUsagesReport() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/find-package-usages-test");
+        File reportFile = new File(testProjectDir, "target/usages-report.jsonl");
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+
+        verifier.setSystemProperty("package", "org.osgi.framework");
+        verifier.setSystemProperty("reportFile", reportFile.getAbsolutePath());
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:find-package-usages");
+
+        verifier.verifyErrorFreeLog();
+        verifier.assertFilePresent(reportFile.getAbsolutePath());
+        String report = new String(Files.readAllBytes(reportFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(report.contains("\"artifact\":\"org.osgi:org.osgi.core:"));
+
+        verifier.resetStreams();
+    }
 }
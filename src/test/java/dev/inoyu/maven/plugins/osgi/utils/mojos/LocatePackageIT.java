@@ -36,4 +36,21 @@ public class LocatePackageIT extends AbstractMojoTestCase {
 
         verifier.resetStreams();
     }
+
+    public void testLocatePackages() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/locate-package-test");
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+
+        verifier.setSystemProperty("packages", "org.osgi.framework,org.osgi.service.cm,com.example.missing");
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:locate-package");
+
+        verifier.verifyErrorFreeLog();
+        verifier.verifyTextInLog("Package found in Dependency: org.osgi:org.osgi.core");
+        verifier.verifyTextInLog("Package found in Dependency: org.osgi:osgi.cmpn");
+        verifier.verifyTextInLog("Packages found: 2/3");
+
+        verifier.resetStreams();
+    }
 }
@@ -19,6 +19,8 @@ import org.apache.maven.it.Verifier;
 import org.apache.maven.plugin.testing.AbstractMojoTestCase;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 public class ViewManifestIT extends AbstractMojoTestCase {
 
@@ -36,4 +38,58 @@ public class ViewManifestIT extends AbstractMojoTestCase {
 
         verifier.resetStreams();
     }
+
+    public void testViewManifestDirectorySweep() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/view-manifest-test");
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+        verifier.setSystemProperty("jars", new File(testProjectDir, "target").getAbsolutePath());
+
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:view-manifest");
+
+        verifier.verifyErrorFreeLog();
+        verifier.verifyTextInLog("view-manifest-test-1.0-SNAPSHOT.jar");
+        verifier.verifyTextInLog("Bundle-SymbolicName:");
+
+        verifier.resetStreams();
+    }
+
+    public void testViewManifestSweepSkipsCorruptJars() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/view-manifest-test");
+        File corruptJarsDir = new File(testProjectDir, "corrupt-jars");
+        corruptJarsDir.mkdirs();
+        Files.write(new File(corruptJarsDir, "broken.jar").toPath(), "not a zip file".getBytes(StandardCharsets.UTF_8));
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+        verifier.setSystemProperty("jars", new File(testProjectDir, "target").getAbsolutePath() + ","
+                + corruptJarsDir.getAbsolutePath());
+
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:view-manifest");
+
+        verifier.verifyErrorFreeLog();
+        verifier.verifyTextInLog("view-manifest-test-1.0-SNAPSHOT.jar");
+        verifier.verifyTextInLog("Unable to read the manifest of " + new File(corruptJarsDir, "broken.jar").getPath());
+        verifier.verifyTextInLog("Unreadable JARs skipped: 1 of ");
+
+        verifier.resetStreams();
+    }
+
+    public void testViewManifestExportFilter() throws Exception {
+        File testProjectDir = new File(getBasedir(), "target/it/projects/view-manifest-test");
+
+        Verifier verifier = new Verifier(testProjectDir.getAbsolutePath());
+        verifier.setAutoclean(false);
+        verifier.setSystemProperty("jars", new File(testProjectDir, "target").getAbsolutePath() + "/*.jar");
+        verifier.setSystemProperty("exportsPackage", "com.example.missing.*");
+
+        verifier.executeGoal("dev.inoyu:osgi-utils-maven-plugin:view-manifest");
+
+        verifier.verifyErrorFreeLog();
+        verifier.verifyTextInLog("Bundles matching the filters:");
+        verifier.verifyTextInLog("0 of ");
+
+        verifier.resetStreams();
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.resolution;
+
+import dev.inoyu.maven.plugins.osgi.utils.resolution.WiringResolver.Bundle;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.WiringResolver.Import;
+import dev.inoyu.maven.plugins.osgi.utils.resolution.WiringResolver.Reason;
+import dev.inoyu.maven.plugins.osgi.utils.scanning.PackageMatcher;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WiringResolverTest {
+
+    @Test
+    public void testResolved() {
+        WiringResolver resolver = new WiringResolver(null);
+        resolver.addBundle("com.example.api", "1.0.0", "api.jar", "com.example.api;version=1.2.0", null);
+        Bundle impl = resolver.addBundle("com.example.impl", "1.0.0", "impl.jar", null,
+                "com.example.api;version=\"[1.0,2)\",java.util");
+
+        assertTrue(resolver.resolve().isEmpty());
+        assertTrue(impl.isResolved());
+        // The java.* packages are always available and not counted
+        assertEquals(1, resolver.getImportCount());
+    }
+
+    @Test
+    public void testNotExported() {
+        // The deployment error of docs/demo/deployment-error.txt
+        WiringResolver resolver = new WiringResolver(null);
+        Bundle bundle = resolver.addBundle("org.apache.unomi.persistence-opensearch-core", "2.6.0.SNAPSHOT",
+                "persistence-opensearch-core.jar", null, "android.os");
+
+        assertEquals(Collections.singletonList(bundle), resolver.resolve());
+        assertEquals(Reason.NOT_EXPORTED, getImport(bundle, "android.os").getReason());
+    }
+
+    @Test
+    public void testVersionMismatch() {
+        WiringResolver resolver = new WiringResolver(null);
+        resolver.addBundle("com.example.api", "3.0.0", "api.jar", "com.example.api;version=3.0.0", null);
+        Bundle impl = resolver.addBundle("com.example.impl", "1.0.0", "impl.jar", null,
+                "com.example.api;version=\"[1.0,2)\"");
+
+        assertEquals(Collections.singletonList(impl), resolver.resolve());
+        Import anImport = getImport(impl, "com.example.api");
+        assertEquals(Reason.VERSION_MISMATCH, anImport.getReason());
+        assertEquals("[1.0,2)", anImport.getRange());
+        assertTrue(anImport.getCandidates().isEmpty());
+    }
+
+    @Test
+    public void testExportersUnresolved() {
+        // A imports from B, which imports from C, which imports a package nobody exports: none of them resolves
+        WiringResolver resolver = new WiringResolver(null);
+        Bundle a = resolver.addBundle("a", "1.0.0", "a.jar", null, "com.example.b");
+        Bundle b = resolver.addBundle("b", "1.0.0", "b.jar", "com.example.b", "com.example.c");
+        Bundle c = resolver.addBundle("c", "1.0.0", "c.jar", "com.example.c", "com.example.missing");
+
+        assertEquals(Arrays.asList(a, b, c), resolver.resolve());
+        assertEquals(Reason.NOT_EXPORTED, getImport(c, "com.example.missing").getReason());
+        assertEquals(Reason.EXPORTERS_UNRESOLVED, getImport(b, "com.example.c").getReason());
+        Import anImport = getImport(a, "com.example.b");
+        assertEquals(Reason.EXPORTERS_UNRESOLVED, anImport.getReason());
+        assertEquals(1, anImport.getCandidates().size());
+        assertSame(b, anImport.getCandidates().get(0).getBundle());
+    }
+
+    @Test
+    public void testResolvedExporterAmongUnresolvedOnes() {
+        WiringResolver resolver = new WiringResolver(null);
+        resolver.addBundle("broken", "1.0.0", "broken.jar", "com.example.api", "com.example.missing");
+        resolver.addBundle("working", "1.0.0", "working.jar", "com.example.api", null);
+        Bundle impl = resolver.addBundle("impl", "1.0.0", "impl.jar", null, "com.example.api");
+
+        assertEquals(1, resolver.resolve().size());
+        assertTrue(impl.isResolved());
+    }
+
+    @Test
+    public void testOptionalImport() {
+        WiringResolver resolver = new WiringResolver(null);
+        Bundle bundle = resolver.addBundle("com.example.impl", "1.0.0", "impl.jar", null,
+                "com.example.optional;resolution:=optional,com.example.missing");
+
+        assertEquals(Collections.singletonList(bundle), resolver.resolve());
+        // Only the mandatory import is reported
+        assertNull(getImport(bundle, "com.example.optional").getReason());
+        assertTrue(getImport(bundle, "com.example.optional").isOptional());
+        assertEquals(Reason.NOT_EXPORTED, getImport(bundle, "com.example.missing").getReason());
+    }
+
+    @Test
+    public void testSystemPackages() {
+        WiringResolver resolver = new WiringResolver(null);
+        Bundle bundle = resolver.addBundle("com.example.impl", "1.0.0", "impl.jar", null,
+                "org.osgi.framework;version=\"[1.8,2)\"");
+        resolver.addSystemPackages("org.osgi.framework;version=1.10,javax.annotation;version=1.3");
+
+        assertTrue(resolver.resolve().isEmpty());
+        assertTrue(bundle.isResolved());
+        assertEquals("system.bundle", resolver.getExports("org.osgi.framework").get(0).getBundle().toString());
+    }
+
+    @Test
+    public void testIgnoredPackages() {
+        WiringResolver resolver = new WiringResolver(PackageMatcher.compile("android.*"));
+        Bundle bundle = resolver.addBundle("com.example.impl", "1.0.0", "impl.jar", null, "android.os,android.util");
+
+        assertTrue(resolver.resolve().isEmpty());
+        assertTrue(bundle.getImports().isEmpty());
+    }
+
+    @Test
+    public void testSelfImport() {
+        // A bundle importing the package it exports uses its own export when no other bundle provides it,
+        // even if it does not resolve
+        WiringResolver resolver = new WiringResolver(null);
+        Bundle api = resolver.addBundle("com.example.api", "1.0.0", "api.jar", "com.example.api;version=1.0.0",
+                "com.example.api;version=\"[1.0,2)\"");
+        Bundle broken = resolver.addBundle("com.example.broken", "1.0.0", "broken.jar", "com.example.spi",
+                "com.example.spi,com.example.missing");
+
+        assertEquals(Collections.singletonList(broken), resolver.resolve());
+        assertTrue(api.isResolved());
+        assertNull(getImport(broken, "com.example.spi").getReason());
+        assertEquals(Reason.NOT_EXPORTED, getImport(broken, "com.example.missing").getReason());
+    }
+
+    @Test
+    public void testInvalidVersions() {
+        WiringResolver resolver = new WiringResolver(null);
+        resolver.addBundle("com.example.api", "1.0.0", "api.jar", "com.example.api;version=not.a.version", null);
+        Bundle impl = resolver.addBundle("com.example.impl", "1.0.0", "impl.jar", null,
+                "com.example.api;version=\"[1.0,oops)\"");
+
+        // Both are replaced by the lowest version, and reported
+        assertTrue(resolver.resolve().isEmpty());
+        assertTrue(impl.isResolved());
+        assertEquals(2, resolver.getWarnings().size());
+    }
+
+    private static Import getImport(Bundle bundle, String packageName) {
+        List<Import> imports = bundle.getImports();
+        for (Import anImport : imports) {
+            if (anImport.getPackageName().equals(packageName)) {
+                return anImport;
+            }
+        }
+        throw new AssertionError(bundle + " does not import " + packageName);
+    }
+}
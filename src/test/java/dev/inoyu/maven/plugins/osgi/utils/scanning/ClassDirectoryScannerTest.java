@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class ClassDirectoryScannerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Pretends that each class file, whose content is a package name, refers to that package.
+     */
+    private static final ClassDirectoryScanner.ClassAnalyzer ANALYZER = (classFile, classBytes, referredPackages) -> {
+        referredPackages.add(new String(classBytes, StandardCharsets.UTF_8));
+        String fileName = classFile.getFileName().toString();
+        return fileName.substring(0, fileName.length() - ".class".length());
+    };
+
+    @Test
+    public void testIncrementalScan() throws Exception {
+        File classesDir = temporaryFolder.newFolder("classes");
+        File stateDir = temporaryFolder.newFolder("state");
+        File stateFile = new File(stateDir, "classes.refs");
+        Path foo = writeClass(classesDir, "Foo.class", "org.foo");
+        writeClass(classesDir, "Bar.class", "org.bar");
+
+        ClassDirectoryScanner scanner = new ClassDirectoryScanner(stateFile);
+        ClassReferences references = scanner.scan(classesDir, ANALYZER);
+        assertEquals(2, scanner.getAnalyzedCount());
+        assertEquals(Collections.singleton("org.foo"), references.getReferredPackages().get("Foo"));
+        // The state replaces the previous one without leaving temporary files behind
+        assertEquals(Collections.singletonList("classes.refs"), Arrays.asList(stateDir.list()));
+
+        Files.write(foo, "org.baz".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(foo, FileTime.fromMillis(Files.getLastModifiedTime(foo).toMillis() + 60_000));
+        scanner = new ClassDirectoryScanner(stateFile);
+        references = scanner.scan(classesDir, ANALYZER);
+        assertEquals(1, scanner.getAnalyzedCount());
+        assertEquals(1, scanner.getReusedCount());
+        assertEquals(Collections.singleton("org.baz"), references.getReferredPackages().get("Foo"));
+        assertEquals(Collections.singleton("org.bar"), references.getReferredPackages().get("Bar"));
+        assertEquals(Collections.singletonList("classes.refs"), Arrays.asList(stateDir.list()));
+    }
+
+    @Test
+    public void testAddReferences() throws Exception {
+        File classesDir = temporaryFolder.newFolder("classes");
+        writeClass(classesDir, "Foo.class", "org.foo");
+        byte[] content = "org.foo".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        ClassDirectoryScanner scanner = new ClassDirectoryScanner(new File(temporaryFolder.getRoot(), "classes.refs"));
+        scanner.scan(classesDir, ANALYZER);
+
+        ClassReferences references = new ClassReferences();
+        assertTrue(scanner.addReferences("Foo.class", content.length, crc.getValue(), references));
+        assertFalse(scanner.addReferences("Foo.class", content.length, crc.getValue() + 1, references));
+        assertFalse(scanner.addReferences("Bar.class", content.length, crc.getValue(), references));
+        assertEquals(Collections.singleton("org.foo"), references.getReferredPackages().get("Foo"));
+    }
+
+    private static Path writeClass(File classesDir, String name, String content) throws IOException {
+        return Files.write(classesDir.toPath().resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
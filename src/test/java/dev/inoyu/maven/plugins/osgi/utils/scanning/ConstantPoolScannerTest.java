@@ -0,0 +1,232 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ConstantPoolScannerTest {
+
+    private static final String SAMPLE_CLASS = ConstantPoolScannerTest.class.getName() + "$Sample";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The class analyzed by the tests, referring to packages through its fields, signatures, method calls and
+     * a Class.forName lookup.
+     */
+    @SuppressWarnings("unused")
+    static class Sample {
+        private Callable<URI> task;
+
+        Logger logger() {
+            return Logger.getLogger("sample");
+        }
+
+        Object context() throws ReflectiveOperationException {
+            return Class.forName("javax.naming.InitialContext");
+        }
+    }
+
+    @Test
+    public void testScanClass() throws IOException {
+        Set<String> packages = new HashSet<>();
+        String className = new ConstantPoolScanner().scanClass(sampleBytes(), packages);
+
+        assertEquals(SAMPLE_CLASS, className);
+        assertTrue(packages.toString(), packages.containsAll(Arrays.asList(
+                "dev.inoyu.maven.plugins.osgi.utils.scanning", "java.lang", "java.util.concurrent", "java.net",
+                "java.util.logging", "javax.naming")));
+    }
+
+    @Test
+    public void testScanJar() throws IOException {
+        File jar = temporaryFolder.newFile("sample.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (String name : new String[]{SAMPLE_CLASS.replace('.', '/') + ".class",
+                    "META-INF/versions/11/" + SAMPLE_CLASS.replace('.', '/') + ".class"}) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(sampleBytes());
+                out.closeEntry();
+            }
+        }
+
+        ClassReferences references = new ConstantPoolScanner().scan(jar);
+
+        // The classes under META-INF are not analyzed
+        assertEquals(Collections.singleton(SAMPLE_CLASS), references.getReferredPackages().keySet());
+        assertTrue(references.getReferredPackages().get(SAMPLE_CLASS).contains("java.util.logging"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAClassFile() throws IOException {
+        new ConstantPoolScanner().scanClass(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, new HashSet<>());
+    }
+
+    @Test
+    public void testInvalidTableSwitch() {
+        // high < low
+        assertInvalidSwitch(switchClass(0xaa, 5, 1));
+    }
+
+    @Test
+    public void testInvalidLookupSwitch() {
+        // negative number of pairs
+        assertInvalidSwitch(switchClass(0xab, -1));
+    }
+
+    @Test
+    public void testSwitchTableBeyondCode() {
+        assertInvalidSwitch(switchClass(0xab, 1000));
+    }
+
+    @Test
+    public void testScanSkipsCorruptClasses() throws IOException {
+        File jar = temporaryFolder.newFile("corrupt.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("Broken.class"));
+            out.write(switchClass(0xaa, 5, 1));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry(SAMPLE_CLASS.replace('.', '/') + ".class"));
+            out.write(sampleBytes());
+            out.closeEntry();
+        }
+
+        ConstantPoolScanner scanner = new ConstantPoolScanner();
+        ClassReferences references = scanner.scan(jar);
+
+        assertEquals(Collections.singleton(SAMPLE_CLASS), references.getReferredPackages().keySet());
+        assertEquals(1, scanner.getSkippedClasses().size());
+        assertTrue(scanner.getSkippedClasses().get(0), scanner.getSkippedClasses().get(0).contains("Invalid switch in Broken"));
+    }
+
+    @Test
+    public void testIsClassFile() {
+        assertTrue(ConstantPoolScanner.isClassFile("org/foo/Foo.class"));
+        assertFalse(ConstantPoolScanner.isClassFile("META-INF/versions/11/org/foo/Foo.class"));
+        assertFalse(ConstantPoolScanner.isClassFile("org/foo/Foo.properties"));
+    }
+
+    @Test
+    public void testParseSignature() {
+        Set<String> packages = new TreeSet<>();
+        ConstantPoolScanner.parseSignature(
+                "<T:Ljava/lang/Number;>(Ljava/util/Map<Ljava/lang/String;[Ljavax/swing/JComponent;>;TT;I)Ljava/io/File;",
+                packages);
+
+        assertEquals(new TreeSet<>(Arrays.asList("java.lang", "java.util", "javax.swing", "java.io")), packages);
+    }
+
+    @Test
+    public void testParseSignatureOfInnerClass() {
+        Set<String> packages = new TreeSet<>();
+        ConstantPoolScanner.parseSignature("Lorg/foo/Outer<Lorg/bar/Bar;>.Inner<Lorg/baz/Baz;>;", packages);
+
+        assertEquals(new TreeSet<>(Arrays.asList("org.foo", "org.bar", "org.baz")), packages);
+    }
+
+    private static void assertInvalidSwitch(byte[] classBytes) {
+        try {
+            new ConstantPoolScanner().scanClass(classBytes, new HashSet<>());
+            fail("The invalid switch should be reported");
+        } catch (IOException e) {
+            assertEquals("Invalid switch in Broken", e.getMessage());
+        }
+    }
+
+    /**
+     * Builds a class "Broken" with a single method made of a tableswitch (0xaa) or lookupswitch (0xab) followed by
+     * a return, the counts of the switch being written as given, without any jump table.
+     */
+    private static byte[] switchClass(int opcode, int... counts) {
+        try {
+            ByteArrayOutputStream code = new ByteArrayOutputStream();
+            DataOutputStream codeOut = new DataOutputStream(code);
+            codeOut.writeByte(0x03); // iconst_0
+            codeOut.writeByte(opcode);
+            codeOut.writeShort(0); // padding up to offset 4
+            codeOut.writeInt(0); // default offset
+            for (int count : counts) {
+                codeOut.writeInt(count);
+            }
+            codeOut.writeByte(0xb1); // return
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+            out.writeShort(8);
+            String[] utf8 = {"Broken", null, "java/lang/Object", null, "m", "()V", "Code"};
+            for (int i = 0; i < utf8.length; i++) {
+                if (utf8[i] != null) {
+                    out.writeByte(1);
+                    out.writeUTF(utf8[i]);
+                } else {
+                    out.writeByte(7);
+                    out.writeShort(i); // the class refers to the name before it
+                }
+            }
+            out.writeShort(0x21); // public super
+            out.writeShort(2);
+            out.writeShort(4);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(1); // methods
+            out.writeShort(0x09); // public static
+            out.writeShort(5);
+            out.writeShort(6);
+            out.writeShort(1);
+            out.writeShort(7);
+            out.writeInt(12 + code.size());
+            out.writeShort(1); // max stack
+            out.writeShort(0); // max locals
+            out.writeInt(code.size());
+            out.write(code.toByteArray());
+            out.writeShort(0); // exception table
+            out.writeShort(0); // code attributes
+            out.writeShort(0); // class attributes
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] sampleBytes() throws IOException {
+        try (InputStream in = Sample.class.getResourceAsStream(
+                SAMPLE_CLASS.substring(SAMPLE_CLASS.lastIndexOf('.') + 1) + ".class")) {
+            assertNotNull(in);
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class JarCollectorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path deploy;
+
+    @Before
+    public void setUp() throws IOException {
+        deploy = temporaryFolder.newFolder("deploy").toPath();
+        Files.createDirectories(deploy.resolve("sub"));
+        for (String name : new String[]{"a.jar", "a-sources.jar", "readme.txt", "sub/b.jar"}) {
+            Files.createFile(deploy.resolve(name));
+        }
+    }
+
+    @Test
+    public void testDirectory() throws IOException {
+        JarCollector collector = new JarCollector();
+        collector.add(deploy.toString());
+
+        assertEquals(Arrays.asList(deploy.resolve("a.jar"), deploy.resolve("sub/b.jar")), collector.getJars());
+    }
+
+    @Test
+    public void testGlobPatterns() throws IOException {
+        JarCollector collector = new JarCollector();
+        collector.add(deploy + "/*.jar");
+        assertEquals(Arrays.asList(deploy.resolve("a-sources.jar"), deploy.resolve("a.jar")), collector.getJars());
+
+        // The separator before the file name is literal, so the jars directly in the directory are not matched
+        collector = new JarCollector();
+        collector.add(deploy + "/**/*.jar");
+        assertEquals(Collections.singletonList(deploy.resolve("sub/b.jar")), collector.getJars());
+
+        collector = new JarCollector();
+        collector.add(deploy + "/**.jar");
+        assertEquals(Arrays.asList(deploy.resolve("a-sources.jar"), deploy.resolve("a.jar"), deploy.resolve("sub/b.jar")),
+                collector.getJars());
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void testMissingFile() throws IOException {
+        new JarCollector().add(deploy.resolve("missing.jar").toString());
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void testGlobPatternWithoutMatch() throws IOException {
+        new JarCollector().add(deploy + "/*.war");
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void testGlobPatternInMissingDirectory() throws IOException {
+        new JarCollector().add(deploy.resolve("missing") + "/*.jar");
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ManifestReaderTest {
+
+    private static final String MANIFEST = "Manifest-Version: 1.0\r\nBundle-SymbolicName: com.example.bundle\r\n\r\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReadManifest() throws IOException {
+        Manifest manifest = ManifestReader.read(writeJar("META-INF/MANIFEST.MF"));
+
+        assertNotNull(manifest);
+        assertEquals("com.example.bundle", manifest.getMainAttributes().getValue("Bundle-SymbolicName"));
+    }
+
+    @Test
+    public void testReadLowerCaseManifest() throws IOException {
+        // Some tools store the manifest in lower case, which JarFile also accepts
+        Manifest manifest = ManifestReader.read(writeJar("meta-inf/manifest.mf"));
+
+        assertNotNull(manifest);
+        assertEquals("com.example.bundle", manifest.getMainAttributes().getValue("Bundle-SymbolicName"));
+    }
+
+    @Test
+    public void testNoManifest() throws IOException {
+        assertNull(ManifestReader.read(writeJar("META-INF/OTHER.MF")));
+    }
+
+    private File writeJar(String manifestName) throws IOException {
+        File jar = temporaryFolder.newFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("org/foo/Foo.class"));
+            out.write(new byte[]{1, 2, 3});
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry(manifestName));
+            out.write(MANIFEST.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PackageIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File indexFile = new File(temporaryFolder.getRoot(), "package-index.bin");
+        File jar = temporaryFolder.newFile("a.jar");
+
+        PackageIndex index = new PackageIndex(indexFile);
+        index.putPackages(jar, Collections.singleton("org.foo"));
+        index.save();
+
+        PackageIndex loadedIndex = new PackageIndex(indexFile);
+        loadedIndex.load();
+        assertEquals(Collections.singleton("org.foo"), loadedIndex.getPackages(jar));
+    }
+
+    @Test
+    public void testPruneOnSave() throws IOException {
+        File indexFile = new File(temporaryFolder.getRoot(), "package-index.bin");
+        File deletedJar = temporaryFolder.newFile("deleted.jar");
+        File modifiedJar = temporaryFolder.newFile("modified.jar");
+        File jar = temporaryFolder.newFile("a.jar");
+
+        PackageIndex index = new PackageIndex(indexFile);
+        index.putPackages(deletedJar, Collections.singleton("org.deleted"));
+        index.putPackages(modifiedJar, Collections.singleton("org.modified"));
+        index.putPackages(jar, Collections.singleton("org.foo"));
+        index.save();
+        assertTrue(deletedJar.delete());
+        Files.write(modifiedJar.toPath(), new byte[]{1, 2, 3});
+
+        index = new PackageIndex(indexFile);
+        index.load();
+        assertEquals(3, index.size());
+        index.putPackages(jar, Collections.singleton("org.foo"));
+        index.save();
+
+        index = new PackageIndex(indexFile);
+        index.load();
+        assertEquals(1, index.size());
+        assertEquals(Collections.singleton("org.foo"), index.getPackages(jar));
+    }
+
+    @Test
+    public void testMergeConcurrentSaves() throws IOException {
+        File indexFile = new File(temporaryFolder.getRoot(), "package-index.bin");
+        File firstJar = temporaryFolder.newFile("first.jar");
+        File secondJar = temporaryFolder.newFile("second.jar");
+
+        // Two builds load the index, then each one saves the jar it scanned
+        PackageIndex firstIndex = new PackageIndex(indexFile);
+        firstIndex.load();
+        PackageIndex secondIndex = new PackageIndex(indexFile);
+        secondIndex.load();
+        firstIndex.putPackages(firstJar, Collections.singleton("org.first"));
+        firstIndex.save();
+        secondIndex.putPackages(secondJar, Collections.singleton("org.second"));
+        secondIndex.save();
+
+        PackageIndex index = new PackageIndex(indexFile);
+        index.load();
+        assertEquals(Collections.singleton("org.first"), index.getPackages(firstJar));
+        assertEquals(Collections.singleton("org.second"), index.getPackages(secondJar));
+    }
+}
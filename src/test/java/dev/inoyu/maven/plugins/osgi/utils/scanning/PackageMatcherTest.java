@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PackageMatcherTest {
+
+    @Test
+    public void testExactPackage() {
+        PackageMatcher matcher = PackageMatcher.compile("org.foo");
+
+        assertTrue(matcher.matches("org.foo"));
+        assertFalse(matcher.matches("org.foo.bar"));
+        assertFalse(matcher.matches("org"));
+        assertFalse(matcher.matches("org.foobar"));
+    }
+
+    @Test
+    public void testSubpackages() {
+        PackageMatcher matcher = PackageMatcher.compile("org.foo.*");
+
+        assertTrue(matcher.matches("org.foo"));
+        assertTrue(matcher.matches("org.foo.bar"));
+        assertTrue(matcher.matches("org.foo.bar.baz"));
+        assertFalse(matcher.matches("org.foobar"));
+        assertFalse(matcher.matches("org"));
+    }
+
+    @Test
+    public void testWildcard() {
+        PackageMatcher matcher = PackageMatcher.compile("*");
+
+        assertTrue(matcher.matches("org.foo"));
+        assertTrue(matcher.matches("."));
+    }
+
+    @Test
+    public void testSubtrees() {
+        PackageMatcher matcher = PackageMatcher.compileSubtrees("org.foo");
+
+        assertTrue(matcher.matches("org.foo"));
+        assertTrue(matcher.matches("org.foo.bar"));
+        // Packages are only matched on segment boundaries
+        assertFalse(matcher.matches("org.foobar"));
+        assertEquals(Collections.singletonList("org.foo"), matcher.getMatchingPatterns("org.foo.bar"));
+    }
+
+    @Test
+    public void testMatchingPatterns() {
+        PackageMatcher matcher = PackageMatcher.compile(Arrays.asList("org.*, org.foo", "org.foo.*", "com.bar"));
+
+        assertEquals(Arrays.asList("org.*", "org.foo.*", "org.foo"), matcher.getMatchingPatterns("org.foo"));
+        assertEquals(Arrays.asList("org.*", "org.foo.*"), matcher.getMatchingPatterns("org.foo.bar"));
+        assertEquals(Collections.singletonList("com.bar"), matcher.getMatchingPatterns("com.bar"));
+        assertTrue(matcher.getMatchingPatterns("com.baz").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPattern() {
+        PackageMatcher.compile("org.*.foo");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPattern() {
+        PackageMatcher.compile(" , ");
+    }
+}
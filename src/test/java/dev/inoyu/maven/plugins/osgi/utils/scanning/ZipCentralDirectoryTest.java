@@ -0,0 +1,225 @@
+/*
+ * Copyright 2024 Serge Huber
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.inoyu.maven.plugins.osgi.utils.scanning;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ZipCentralDirectoryTest {
+
+    private static final String[] ENTRIES = {
+            "META-INF/MANIFEST.MF",
+            "org/foo/",
+            "org/foo/Foo.class",
+            "org/foo/bar/Bar.class",
+            "org/foobar/FooBar.class",
+            "lib/nested.jar",
+            "root.txt"
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testListPackages() throws IOException {
+        File jar = writeJar(zipBytes(ENTRIES));
+
+        assertEquals(new TreeSet<>(Arrays.asList("META-INF", "org.foo", "org.foo.bar", "org.foobar", "lib")),
+                ZipCentralDirectory.listPackages(jar));
+    }
+
+    @Test
+    public void testListPackagesOfPackage() throws IOException {
+        File jar = writeJar(zipBytes(ENTRIES));
+
+        // Subpackages are included, but not the packages merely sharing a prefix
+        assertEquals(new TreeSet<>(Arrays.asList("org.foo", "org.foo.bar")),
+                ZipCentralDirectory.listPackages(jar, "org.foo"));
+        assertEquals(Collections.singleton("org.foo.bar"), ZipCentralDirectory.listPackages(jar, "org.foo.bar"));
+        assertTrue(ZipCentralDirectory.listPackages(jar, "org.baz").isEmpty());
+    }
+
+    @Test
+    public void testFindPackage() throws IOException {
+        File jar = writeJar(zipBytes(ENTRIES));
+
+        assertEquals("org.foo", ZipCentralDirectory.findPackage(jar, "org.foo"));
+        assertEquals("org.foo.bar", ZipCentralDirectory.findPackage(jar, "org.foo.bar"));
+        assertEquals("org.foobar", ZipCentralDirectory.findPackage(jar, "org.foobar"));
+        assertNull(ZipCentralDirectory.findPackage(jar, "org.baz"));
+        // The directory entry alone does not make a package
+        assertNull(ZipCentralDirectory.findPackage(writeJar(zipBytes("org/empty/", "root.txt")), "org.empty"));
+    }
+
+    @Test
+    public void testListEntries() throws IOException {
+        File jar = writeJar(zipBytes(ENTRIES));
+
+        assertEquals(Collections.singletonList("lib/nested.jar"), ZipCentralDirectory.listEntries(jar, ".jar"));
+    }
+
+    @Test
+    public void testVisitEntries() throws IOException {
+        File jar = writeJar(zipBytes(ENTRIES));
+
+        Map<String, long[]> visited = new TreeMap<>();
+        ZipCentralDirectory.visitEntries(jar, Collections.singleton("org.foo"),
+                (name, crc, size) -> visited.put(name, new long[]{crc, size}));
+
+        // Only the entries stored directly in the package are visited, with the checksum of their data
+        assertEquals(Collections.singleton("org/foo/Foo.class"), visited.keySet());
+        byte[] data = content("org/foo/Foo.class");
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        assertArrayEquals(new long[]{crc.getValue(), data.length}, visited.get("org/foo/Foo.class"));
+    }
+
+    @Test
+    public void testReadEntry() throws IOException {
+        File jar = writeJar(zipBytes(ENTRIES));
+
+        assertArrayEquals(content("org/foo/bar/Bar.class"), ZipCentralDirectory.readEntry(jar, "org/foo/bar/Bar.class"));
+        assertArrayEquals(content("root.txt"), ZipCentralDirectory.readEntry(jar, "root.txt"));
+        assertNull(ZipCentralDirectory.readEntry(jar, "org/foo/Missing.class"));
+    }
+
+    @Test
+    public void testReadEntryIgnoreCase() throws IOException {
+        File jar = writeJar(zipBytes("meta-inf/manifest.mf", "org/foo/Foo.class"));
+
+        try (ZipCentralDirectory directory = ZipCentralDirectory.open(jar)) {
+            assertArrayEquals(content("meta-inf/manifest.mf"), directory.readEntryIgnoreCase("META-INF/MANIFEST.MF"));
+            assertArrayEquals(content("org/foo/Foo.class"), directory.readEntryIgnoreCase("org/foo/Foo.class"));
+            assertNull(directory.readEntryIgnoreCase("META-INF/OTHER.MF"));
+        }
+        assertNull(ZipCentralDirectory.readEntry(jar, "META-INF/MANIFEST.MF"));
+    }
+
+    @Test
+    public void testReadStoredEntry() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] data = content("stored.txt");
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            ZipEntry entry = new ZipEntry("stored.txt");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.setCrc(crc.getValue());
+            out.putNextEntry(entry);
+            out.write(data);
+            out.closeEntry();
+        }
+        File jar = writeJar(bytes.toByteArray());
+
+        assertArrayEquals(data, ZipCentralDirectory.readEntry(jar, "stored.txt"));
+    }
+
+    @Test
+    public void testPrependedData() throws IOException {
+        // Self-extracting archives start with a launcher, the offsets recorded in the zip content ignoring it
+        byte[] launcher = "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8);
+        byte[] zip = zipBytes(ENTRIES);
+        byte[] prefixed = new byte[launcher.length + zip.length];
+        System.arraycopy(launcher, 0, prefixed, 0, launcher.length);
+        System.arraycopy(zip, 0, prefixed, launcher.length, zip.length);
+        File jar = writeJar(prefixed);
+
+        assertEquals(new TreeSet<>(Arrays.asList("org.foo", "org.foo.bar")),
+                ZipCentralDirectory.listPackages(jar, "org.foo"));
+        assertArrayEquals(content("org/foo/Foo.class"), ZipCentralDirectory.readEntry(jar, "org/foo/Foo.class"));
+        assertArrayEquals(content("META-INF/MANIFEST.MF"), ZipCentralDirectory.readEntry(jar, "META-INF/MANIFEST.MF"));
+    }
+
+    @Test
+    public void testNameLengthExceedingCentralDirectory() throws IOException {
+        byte[] zip = zipBytes(ENTRIES);
+        ByteBuffer buffer = ByteBuffer.wrap(zip).order(ByteOrder.LITTLE_ENDIAN);
+        int directoryOffset = buffer.getInt(zip.length - 22 + 16);
+        int directorySize = buffer.getInt(zip.length - 22 + 12);
+        // The name of the first entry now runs past the end of the central directory
+        buffer.putShort(directoryOffset + 28, (short) (directorySize + 1));
+        File jar = writeJar(zip);
+
+        try {
+            ZipCentralDirectory.open(jar).close();
+            fail("A central directory entry exceeding the central directory should be rejected");
+        } catch (ZipException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(jar.getPath()));
+        }
+    }
+
+    @Test
+    public void testCommentLengthExceedingCentralDirectory() throws IOException {
+        byte[] zip = zipBytes(ENTRIES);
+        ByteBuffer buffer = ByteBuffer.wrap(zip).order(ByteOrder.LITTLE_ENDIAN);
+        int directoryOffset = buffer.getInt(zip.length - 22 + 16);
+        buffer.putShort(directoryOffset + 32, (short) 0xFFFF);
+        File jar = writeJar(zip);
+
+        try {
+            ZipCentralDirectory.open(jar).close();
+            fail("A central directory entry exceeding the central directory should be rejected");
+        } catch (ZipException e) {
+            // Expected
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void testNotAZipFile() throws IOException {
+        ZipCentralDirectory.open(writeJar("not a zip file".getBytes(StandardCharsets.UTF_8))).close();
+    }
+
+    private static byte[] zipBytes(String... names) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (String name : names) {
+                out.putNextEntry(new ZipEntry(name));
+                if (!name.endsWith("/")) {
+                    out.write(content(name));
+                }
+                out.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] content(String name) {
+        return ("Content of " + name + "\n").repeat(8).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private File writeJar(byte[] bytes) throws IOException {
+        File jar = temporaryFolder.newFile();
+        Files.write(jar.toPath(), bytes);
+        return jar;
+    }
+}